@@ -0,0 +1,46 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+
+/**
+ * Entry point of the per-program JVM used by {@link ExecutionMode#BATCH}. Runs the
+ * student's main once per test case, each time in a fresh class loader.
+ *
+ * Usage: java BatchHarness &lt;classPathDir&gt; &lt;mainClass&gt;
+ *   stdin:  int maxOutputBytes, int count, then per test: long timeoutMillis, int length + bytes input
+ *   stdout: one {@link IsolatedRunner.Outcome} frame per test, in order
+ * After a test times out or leaves threads running, those threads cannot be stopped and would
+ * write into later tests, so the harness reports it and halts; the grader starts a new harness
+ * for the remaining tests.
+ */
+public class BatchHarness {
+
+    public static void main(String[] args) throws Exception {
+        String classPathDir = args[0];
+        String mainClass = args[1];
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(FileDescriptor.in)));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        IsolatedRunner.installExitTrap();
+
+        int maxOutputBytes = in.readInt();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            long timeoutMillis = in.readLong();
+            byte[] stdin = new byte[in.readInt()];
+            in.readFully(stdin);
+
+            IsolatedRunner.Outcome outcome = IsolatedRunner.run(classPathDir, mainClass, stdin, maxOutputBytes, timeoutMillis);
+            outcome.writeTo(out);
+            if (outcome.timedOut || !outcome.clean) {
+                Runtime.getRuntime().halt(0);
+            }
+        }
+        out.flush();
+        Runtime.getRuntime().halt(0); // don't wait for threads a submission left running
+    }
+}
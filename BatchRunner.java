@@ -0,0 +1,123 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs all test cases of one program in a single {@link BatchHarness} JVM, so a
+ * student costs one JVM startup instead of one per test case.
+ */
+public class BatchRunner {
+    // Extra time allowed per test on top of its timeout, mostly for the harness JVM to start
+    private static final long SLACK_MILLIS = 2000;
+
+    private final Executor executor;
+
+    public BatchRunner(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Run every test case; an entry is null if the harness crashed while running that test
+     */
+    public RunResult[] runAll(Program program, List<TestCase> tests, TestSuit suite) throws IOException, InterruptedException {
+        RunResult[] results = new RunResult[tests.size()];
+        int next = 0;
+        while (next < tests.size()) {
+            next = runFrom(program, tests, suite, next, results);
+        }
+        return results;
+    }
+
+    /**
+     * Start a harness for tests[from..] and collect results until it finishes or has to be abandoned
+     *
+     * @return index of the first test that still needs to run
+     */
+    private int runFrom(Program program, List<TestCase> tests, TestSuit suite, int from, RunResult[] results)
+            throws IOException, InterruptedException {
+        List<String> cmd = new ArrayList<>();
+        cmd.add("java");
+        cmd.add("-Djava.security.manager=allow"); // needed for the System.exit trap
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        cmd.add("BatchHarness");
+        cmd.add(program.getClassPathDir());
+        cmd.add(program.getMainClassName());
+
+        ProcessBuilder pb = new ProcessBuilder(cmd);
+        pb.redirectError(ProcessBuilder.Redirect.DISCARD);
+        Process p = pb.start();
+
+        CompletableFuture.runAsync(() -> sendTests(p, tests, suite, from), executor);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(p.getInputStream()));
+
+        try {
+            long last = System.nanoTime();
+            long lastCpu = ProcessMeter.cpuMillis(p.toHandle());
+            for (int i = from; i < tests.size(); i++) {
+                CompletableFuture<IsolatedRunner.Outcome> frame = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return IsolatedRunner.Outcome.readFrom(in);
+                    } catch (IOException e) {
+                        throw new java.io.UncheckedIOException(e);
+                    }
+                }, executor);
+
+                IsolatedRunner.Outcome outcome;
+                try {
+                    outcome = frame.get(suite.getTimeoutFor(tests.get(i)) + SLACK_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    results[i] = RunResult.timeout("", false);
+                    return i + 1;
+                } catch (ExecutionException e) {
+                    // The harness died, e.g. Runtime.halt or a JVM crash in student code
+                    results[i] = null;
+                    return i + 1;
+                }
+
+                // Tests run back to back in the harness, so the gap between frames is this test's time.
+                // The harness's peak RSS spans all tests, so only wall and CPU time are per test.
+                long now = System.nanoTime();
+                long cpu = ProcessMeter.cpuMillis(p.toHandle());
+                long cpuDelta = cpu >= 0 && lastCpu >= 0 ? cpu - lastCpu : -1;
+                results[i] = outcome.toRunResult()
+                        .withUsage(new ResourceUsage(TimeUnit.NANOSECONDS.toMillis(now - last), cpuDelta, -1));
+                last = now;
+                lastCpu = cpu;
+                if (outcome.timedOut || !outcome.clean) {
+                    return i + 1; // the harness halted after this test
+                }
+            }
+            return tests.size();
+        } finally {
+            p.descendants().forEach(ProcessHandle::destroyForcibly);
+            p.destroyForcibly();
+        }
+    }
+
+    private static void sendTests(Process p, List<TestCase> tests, TestSuit suite, int from) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(p.getOutputStream()))) {
+            out.writeInt(suite.getMaxOutputBytes());
+            out.writeInt(tests.size() - from);
+            for (int i = from; i < tests.size(); i++) {
+                TestCase tc = tests.get(i);
+                byte[] input = tc.getInput() == null ? new byte[0] : tc.getInput().getBytes(StandardCharsets.UTF_8);
+                out.writeLong(suite.getTimeoutFor(tc));
+                out.writeInt(input.length);
+                out.write(input);
+            }
+        } catch (IOException ignored) {
+            // The harness exited early; runFrom notices and restarts it
+        }
+    }
+}
@@ -0,0 +1,74 @@
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Single-pass char source for the output comparators: reads a CharSequence in place or a
+ * Reader through one fixed-size chunk, so comparing never copies either side into a String.
+ */
+public final class CharScanner {
+    static final int CHUNK_SIZE = 8192;
+
+    private final CharSequence seq;  // exactly one of seq / in is set
+    private final Reader in;
+    private final char[] chunk;
+    private int chunkPos;
+    private int chunkLen;
+    private long position;
+
+    private CharScanner(CharSequence seq, Reader in) {
+        this.seq = seq;
+        this.in = in;
+        this.chunk = in != null ? new char[CHUNK_SIZE] : null;
+    }
+
+    public static CharScanner of(CharSequence s) {
+        return new CharScanner(s == null ? "" : s, null);
+    }
+
+    public static CharScanner of(Reader in) {
+        return new CharScanner(null, in);
+    }
+
+    /**
+     * @return the next char without consuming it, or -1 at the end
+     */
+    public int peek() throws IOException {
+        if (seq != null) {
+            return position < seq.length() ? seq.charAt((int) position) : -1;
+        }
+        if (chunkPos == chunkLen && !fill()) {
+            return -1;
+        }
+        return chunk[chunkPos];
+    }
+
+    /**
+     * @return the next char, or -1 at the end
+     */
+    public int read() throws IOException {
+        int c = peek();
+        if (c != -1) {
+            position++;
+            if (seq == null) chunkPos++;
+        }
+        return c;
+    }
+
+    /**
+     * Number of chars consumed so far
+     */
+    public long position() {
+        return position;
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(chunk, 0, CHUNK_SIZE);
+        chunkPos = 0;
+        chunkLen = Math.max(n, 0);
+        return n > 0;
+    }
+
+    static boolean isSpace(int c) {
+        return c != -1 && c <= ' ';
+    }
+}
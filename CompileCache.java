@@ -0,0 +1,225 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed cache of compiler output. Each entry is a directory named after the
+ * hash of a submission's sources, the compiler flags and the compiler that ran, holding the produced .class files
+ * (at their paths relative to the project directory), the compiler log and the outcome.
+ * Entries are evicted least-recently-used once there are more than maxEntries.
+ */
+public class CompileCache {
+    public static final String DEFAULT_DIR = ".grader_cache/compile";
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    // Output depends on the flags we pass (javac -sourcepath <project dir>) and on the compiler
+    private static final String COMPILER_FLAGS = "-sourcepath <project>";
+
+    // Compiler identity per mode, asked once per grader process
+    private static final Map<CompileMode, String> COMPILERS = new ConcurrentHashMap<>();
+
+    private static final String CLASSES_DIR = "classes";
+    private static final String LOG_FILE = "compile.log";
+    private static final String STATUS_FILE = "status";
+
+    private final Path cacheDir;
+    private final int maxEntries;
+    private int entryCount = -1; // entries in the cache; -1 until first counted. Guarded by this
+
+    public CompileCache(Path cacheDir, int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Cache must hold at least one entry: " + maxEntries);
+        }
+        this.cacheDir = cacheDir;
+        this.maxEntries = maxEntries;
+    }
+
+    public CompileCache() {
+        this(Paths.get(DEFAULT_DIR), DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Cache key for a submission, given its {@link ContentHash#ofSubmission} hash and the way it
+     * is compiled
+     */
+    public String keyFor(String submissionHash, CompileMode mode) {
+        return ContentHash.of(submissionHash, COMPILER_FLAGS, mode.name(), COMPILERS.computeIfAbsent(mode, CompileCache::identify));
+    }
+
+    /**
+     * What compiles in a mode: the version the javac on the PATH reports, or the grader's own
+     * JDK for the in-process compiler
+     */
+    private static String identify(CompileMode mode) {
+        if (mode == CompileMode.IN_PROCESS) {
+            return "jdk " + Runtime.version();
+        }
+        try {
+            Process p = new ProcessBuilder("javac", "-version").redirectErrorStream(true).start();
+            String version;
+            try (InputStream in = p.getInputStream()) {
+                version = new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+            }
+            if (p.waitFor(30, TimeUnit.SECONDS) && p.exitValue() == 0) {
+                return version;
+            }
+            p.destroyForcibly();
+        } catch (IOException e) {
+            // No javac; compiles cannot run either, and nothing is cached for them
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "javac unknown";
+    }
+
+    /**
+     * Put the cached class files back into the project directory and replay the compiler log
+     *
+     * @return the cached compile outcome, or null on a cache miss
+     */
+    public Boolean restore(String key, Program program, StringBuilder log) {
+        Path entry = cacheDir.resolve(key);
+        Path status = entry.resolve(STATUS_FILE);
+        if (!Files.isRegularFile(status)) {
+            return null;
+        }
+
+        try {
+            boolean compiled = Boolean.parseBoolean(Files.readString(status).trim());
+            Path classes = entry.resolve(CLASSES_DIR);
+            Path project = program.getProjectDirectory().toPath();
+            if (Files.isDirectory(classes)) {
+                try (Stream<Path> walk = Files.walk(classes)) {
+                    for (Path cls : walk.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                        Path target = project.resolve(classes.relativize(cls).toString());
+                        Files.createDirectories(target.getParent());
+                        Files.copy(cls, target, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                }
+            }
+            log.append(Files.readString(entry.resolve(LOG_FILE), StandardCharsets.UTF_8));
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+            return compiled;
+        } catch (IOException e) {
+            // A damaged entry is just a miss; drop it so the fresh compile can replace it
+            deleteRecursively(entry);
+            return null;
+        }
+    }
+
+    /**
+     * Record the outcome of a fresh compile. Failures are cached too, so broken
+     * submissions are not recompiled on every run. Only class files written since the compile
+     * started are kept; stale ones and IDE output folders in the project are left out.
+     *
+     * @param startMillis when the compile started, in {@link System#currentTimeMillis()} time
+     */
+    public void store(String key, Program program, boolean compiled, String compileLog, long startMillis) {
+        Path entry = cacheDir.resolve(key);
+        Path staging = null;
+        try {
+            Files.createDirectories(cacheDir);
+            staging = Files.createTempDirectory(cacheDir, key + ".tmp");
+            Path classes = staging.resolve(CLASSES_DIR);
+            Path project = program.getProjectDirectory().toPath();
+
+            if (compiled) {
+                // File systems may keep only whole seconds
+                FileTime since = FileTime.fromMillis(startMillis - startMillis % 1000);
+                try (Stream<Path> walk = Files.walk(project)) {
+                    for (Path cls : walk.filter(p -> p.toString().endsWith(".class") && writtenSince(p, since))
+                            .collect(Collectors.toList())) {
+                        Path target = classes.resolve(project.relativize(cls).toString());
+                        Files.createDirectories(target.getParent());
+                        Files.copy(cls, target);
+                    }
+                }
+            }
+            Files.writeString(staging.resolve(LOG_FILE), compileLog, StandardCharsets.UTF_8);
+            Files.writeString(staging.resolve(STATUS_FILE), Boolean.toString(compiled));
+
+            // Publish atomically; if another thread stored the same key first, keep theirs
+            Files.move(staging, entry, StandardCopyOption.ATOMIC_MOVE);
+            staging = null;
+            added();
+        } catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+            // Same content already cached
+        } catch (IOException e) {
+            System.err.println("Warning: could not write compile cache entry: " + e.getMessage());
+        } finally {
+            if (staging != null) {
+                deleteRecursively(staging);
+            }
+        }
+    }
+
+    /**
+     * Count a new entry; once the count goes over maxEntries, list the cache and drop the least
+     * recently used entries until at most maxEntries remain
+     */
+    private synchronized void added() throws IOException {
+        if (entryCount >= 0 && ++entryCount <= maxEntries) {
+            return;
+        }
+
+        List<Path> entries = new ArrayList<>();
+        try (Stream<Path> list = Files.list(cacheDir)) {
+            list.filter(p -> Files.isRegularFile(p.resolve(STATUS_FILE))).forEach(entries::add);
+        }
+        entryCount = entries.size();
+        if (entries.size() <= maxEntries) {
+            return;
+        }
+
+        entries.sort(Comparator.comparing(CompileCache::lastUsed));
+        for (int i = 0; i < entries.size() - maxEntries; i++) {
+            deleteRecursively(entries.get(i));
+        }
+        entryCount = maxEntries;
+    }
+
+    private static boolean writtenSince(Path file, FileTime since) {
+        try {
+            return Files.getLastModifiedTime(file).compareTo(since) >= 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static FileTime lastUsed(Path entry) {
+        try {
+            return Files.getLastModifiedTime(entry);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static void deleteRecursively(Path dir) {
+        try (Stream<Path> walk = Files.walk(dir)) {
+            walk.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.deleteIfExists(p);
+                } catch (IOException ignored) {
+                    // Best effort; a leftover file only wastes space
+                }
+            });
+        } catch (IOException ignored) {
+            // Already gone
+        }
+    }
+}
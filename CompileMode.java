@@ -0,0 +1,9 @@
+/**
+ * How submissions are compiled.
+ */
+public enum CompileMode {
+    /** Fork a separate javac process per submission */
+    PROCESS,
+    /** Use the JDK's compiler API inside the grader JVM */
+    IN_PROCESS
+}
@@ -0,0 +1,80 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * SHA-256 helpers used to key the on-disk caches.
+ */
+public class ContentHash {
+
+    private ContentHash() {
+    }
+
+    /**
+     * Hash of every .java file under the program's project directory (relative path and
+     * contents, in sorted order) plus the location of its main file
+     */
+    public static String ofSubmission(Program program) throws IOException {
+        Path root = program.getProjectDirectory().toPath();
+        MessageDigest md = newDigest();
+
+        List<Path> sources;
+        try (Stream<Path> walk = Files.walk(root)) {
+            sources = walk.filter(Files::isRegularFile)
+                    .filter(p -> p.toString().endsWith(".java"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        for (Path source : sources) {
+            update(md, root.relativize(source).toString().replace('\\', '/'));
+            byte[] content = Files.readAllBytes(source);
+            update(md, Integer.toString(content.length));
+            md.update(content);
+        }
+        update(md, root.relativize(program.getJavaFile().toPath()).toString().replace('\\', '/'));
+        return hex(md.digest());
+    }
+
+    /**
+     * Hash of a list of strings; each part is length-prefixed so ("ab", "c") != ("a", "bc")
+     */
+    public static String of(String... parts) {
+        MessageDigest md = newDigest();
+        for (String part : parts) {
+            update(md, part == null ? "\0null" : part);
+        }
+        return hex(md.digest());
+    }
+
+    private static void update(MessageDigest md, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        md.update((byte) (bytes.length >>> 24));
+        md.update((byte) (bytes.length >>> 16));
+        md.update((byte) (bytes.length >>> 8));
+        md.update((byte) bytes.length);
+        md.update(bytes);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required by every Java platform", e);
+        }
+    }
+
+    private static String hex(byte[] digest) {
+        StringBuilder sb = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
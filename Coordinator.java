@@ -1,20 +1,255 @@
 import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 public class Coordinator {
 
+    // Daemon threads that feed stdin and drain stdout/stderr of student processes.
+    // They spend nearly all their time blocked on pipes, so the pool is left unbounded.
+    private static final ExecutorService STREAM_PUMPS = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "stream-pump");
+        t.setDaemon(true);
+        return t;
+    });
+
     private final ListOfPrograms programs;
     private final ListOfTestSuites listOfTestSuites;
-    private TestSuit currentSuite;
+    private volatile TestSuit currentSuite;
+    private int parallelism;
+    private CompileMode compileMode;
+    private InProcessCompiler inProcessCompiler;
+    private ExecutionMode executionMode;
+    private WorkerPool workerPool; // only alive while a suite is executing
+    private List<InetSocketAddress> workerNodes = List.of();
+    private String workerToken = System.getenv(WorkerNode.TOKEN_ENV);
+    private GradingCluster cluster; // only alive while a suite is executing, if worker nodes are set
+    private final BatchRunner batchRunner;
+    private CompileCache compileCache; // null = always compile
+    private ResultCache resultCache;   // null = always run
+    private boolean forceFullRerun;
+    private boolean earlyExitOnDivergence;
+    private boolean historyScheduling = true;
+    private boolean stopAfterFirstFailure;
+    private int divergenceMarginChars = DEFAULT_DIVERGENCE_MARGIN_CHARS;
+    private volatile GradingMetrics metrics = GradingMetrics.NONE; // recorded into; NONE outside a suite run
+    private volatile GradingMetrics lastMetrics = new GradingMetrics(null); // of the current or last suite run
+    private final List<GradingListener> listeners = new java.util.concurrent.CopyOnWriteArrayList<>();
+    public static final int DEFAULT_DIVERGENCE_MARGIN_CHARS = 4096;
+    private final ResultHistory history = new ResultHistory(TestSuit.getResultsDirectory());
+    private final SuiteStore suiteStore; // null = suites only live in memory
 
     public Coordinator() {
+        this(new SuiteStore(Paths.get(SuiteStore.DEFAULT_DIRECTORY)));
+    }
+
+    /**
+     * @param suiteStore where test suites are kept between runs; null keeps them in memory only
+     */
+    public Coordinator(SuiteStore suiteStore) {
         this.programs = new ListOfPrograms();
-        this.listOfTestSuites = new ListOfTestSuites();
+        this.suiteStore = suiteStore;
+        this.listOfTestSuites = suiteStore != null ? suiteStore.loadAll() : new ListOfTestSuites();
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+        this.compileMode = CompileMode.PROCESS;
+        this.executionMode = ExecutionMode.PROCESS;
+        this.batchRunner = new BatchRunner(STREAM_PUMPS);
+        this.compileCache = new CompileCache();
+        this.resultCache = new ResultCache();
+        this.forceFullRerun = false;
+    }
+
+    // ---------------------- Configuration ----------------------
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Maximum number of (program, test case) tasks that run at the same time.
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    public CompileMode getCompileMode() {
+        return compileMode;
+    }
+
+    /**
+     * Choose between forking javac per submission and compiling inside the grader JVM.
+     */
+    public synchronized void setCompileMode(CompileMode compileMode) {
+        if (compileMode == CompileMode.IN_PROCESS && inProcessCompiler == null) {
+            inProcessCompiler = new InProcessCompiler();
+        }
+        this.compileMode = compileMode;
+    }
+
+    public CompileCache getCompileCache() {
+        return compileCache;
+    }
+
+    /**
+     * Cache of compiler output keyed by submission content; null disables caching.
+     */
+    public void setCompileCache(CompileCache compileCache) {
+        this.compileCache = compileCache;
+    }
+
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Memo of (submission, test case) outcomes from earlier runs; null disables it.
+     */
+    public void setResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    public boolean isForceFullRerun() {
+        return forceFullRerun;
+    }
+
+    /**
+     * When set, every test runs again even if its outcome is cached (the cache is still refreshed).
+     */
+    public void setForceFullRerun(boolean forceFullRerun) {
+        this.forceFullRerun = forceFullRerun;
+    }
+
+    public boolean isEarlyExitOnDivergence() {
+        return earlyExitOnDivergence;
+    }
+
+    /**
+     * When set, a test running in its own process is killed as soon as its output can no longer
+     * match the expected output, and recorded as FAIL with the offset where it diverged.
+     * Tests run by the worker pool or batch harness are not affected.
+     */
+    public void setEarlyExitOnDivergence(boolean earlyExitOnDivergence) {
+        this.earlyExitOnDivergence = earlyExitOnDivergence;
+    }
+
+    public boolean isHistoryScheduling() {
+        return historyScheduling;
+    }
+
+    /**
+     * When set (the default), a suite run reads the suite's last recorded runs to start the slowest
+     * programs first and run each program's likely failures first; see {@link GradingSchedule}.
+     * Results are stored in discovery order either way.
+     */
+    public void setHistoryScheduling(boolean historyScheduling) {
+        this.historyScheduling = historyScheduling;
+    }
+
+    public boolean isStopAfterFirstFailure() {
+        return stopAfterFirstFailure;
+    }
+
+    /**
+     * When set, each program's tests run one at a time in schedule order and the rest are recorded
+     * as SKIPPED after its first failing test, for quick triage passes. Batch mode is not used then.
+     */
+    public void setStopAfterFirstFailure(boolean stopAfterFirstFailure) {
+        this.stopAfterFirstFailure = stopAfterFirstFailure;
+    }
+
+    public int getDivergenceMarginChars() {
+        return divergenceMarginChars;
+    }
+
+    /**
+     * How much whitespace (in one run, or after the expected output ends) a program may print
+     * before early exit treats its output as diverged
+     */
+    public void setDivergenceMarginChars(int divergenceMarginChars) {
+        if (divergenceMarginChars < 0) {
+            throw new IllegalArgumentException("Divergence margin cannot be negative: " + divergenceMarginChars);
+        }
+        this.divergenceMarginChars = divergenceMarginChars;
+    }
+
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    /**
+     * Choose between a fresh JVM per test case, a pool of warm worker JVMs,
+     * or one JVM per program that runs all of its test cases.
+     */
+    public void setExecutionMode(ExecutionMode executionMode) {
+        this.executionMode = executionMode;
+    }
+
+    public List<InetSocketAddress> getWorkerNodes() {
+        return workerNodes;
+    }
+
+    /**
+     * Worker nodes (see {@link WorkerNode}) to shard suite runs across, one program per job; empty
+     * grades everything here. Programs no node can take are graded here as well.
+     */
+    public void setWorkerNodes(List<InetSocketAddress> workerNodes) {
+        this.workerNodes = List.copyOf(workerNodes);
+    }
+
+    /**
+     * Shared token the worker nodes were started with; defaults to the {@value WorkerNode#TOKEN_ENV}
+     * environment variable. Without one, nothing is shipped and everything is graded here.
+     */
+    public void setWorkerToken(String workerToken) {
+        this.workerToken = workerToken;
+    }
+
+    // ---------------------- Metrics ----------------------
+
+    /**
+     * Counters and phase latencies of the current or last suite run; before the first run, an
+     * empty set without a suite. Each run also saves its metrics next to its result file.
+     */
+    public GradingMetrics getMetrics() {
+        return lastMetrics;
+    }
+
+    // ---------------------- Progress Events ----------------------
+
+    public void addListener(GradingListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(GradingListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void emit(GradingEvent event) {
+        for (GradingListener l : listeners) {
+            try {
+                l.onEvent(event);
+            } catch (RuntimeException e) {
+                System.err.println("Grading listener failed on " + event + ": " + e);
+            }
+        }
     }
 
     // ---------------------- Test Suite / Test Cases ----------------------
@@ -22,6 +257,40 @@ public class Coordinator {
     public void createEmptyTestSuite(String name) {
         currentSuite = new TestSuit(name, new ListOfTestCase());
         listOfTestSuites.setSuite(currentSuite);
+        persist(currentSuite);
+    }
+
+    /**
+     * Write a suite to the suite store after its test cases or settings were changed directly
+     */
+    public void saveSuite(String suiteName) {
+        TestSuit suite = listOfTestSuites.getSuite(suiteName);
+        if (suite != null) {
+            persist(suite);
+        }
+    }
+
+    public void deleteTestSuite(String suiteName) {
+        listOfTestSuites.deleteSuite(suiteName);
+        if (currentSuite != null && currentSuite.getName().equals(suiteName)) {
+            currentSuite = null;
+        }
+        if (suiteStore != null) {
+            try {
+                suiteStore.delete(suiteName);
+            } catch (IOException e) {
+                System.err.println("Warning: Could not delete suite '" + suiteName + "' from the store: " + e.getMessage());
+            }
+        }
+    }
+
+    private void persist(TestSuit suite) {
+        if (suiteStore == null) return;
+        try {
+            suiteStore.save(suite);
+        } catch (IOException e) {
+            System.err.println("Warning: Could not save suite '" + suite.getName() + "': " + e.getMessage());
+        }
     }
 
     public TestSuit getCurrentSuite() {
@@ -43,76 +312,214 @@ public class Coordinator {
             suite = currentSuite;
         }
         suite.getTestCases().add(new TestCase(input, expectedOutput));
+        persist(suite);
+    }
+
+    /**
+     * Add a test case whose input and expected output are read from files at run time
+     */
+    public void addFileTestCaseToSuite(String suiteName, Path inputFile, Path expectedFile) {
+        TestCase tc = TestCase.fromFiles(inputFile, expectedFile);
+        TestSuit suite = listOfTestSuites.getSuite(suiteName);
+        if (suite == null) {
+            createEmptyTestSuite(suiteName);
+            suite = currentSuite;
+        }
+        suite.getTestCases().add(tc);
+        persist(suite);
     }
 
     // ---------------------- Program discovery (Updated for Version 2) ----------------------
 
+    /**
+     * Programs found by the last discovery
+     */
+    public ListOfPrograms getPrograms() {
+        return programs;
+    }
+
     public void buildProgramsFromRoot(File rootFolder, StringBuilder log) {
+        discoverPrograms(rootFolder, event -> {
+            if (event.getText() != null) log.append(event.getText());
+        });
+    }
+
+    private void discoverPrograms(File rootFolder, GradingListener sink) {
         programs.asList().clear();
 
         if (rootFolder == null || !rootFolder.isDirectory()) {
-            log.append("Root folder is invalid.\n");
+            sink.onEvent(GradingEvent.message("Root folder is invalid.\n"));
             return;
         }
 
         // Look for directories (Student Folders)
         File[] studentFolders = rootFolder.listFiles(File::isDirectory);
         if (studentFolders == null || studentFolders.length == 0) {
-            log.append("No student subfolders found in root.\n");
+            sink.onEvent(GradingEvent.message("No student subfolders found in root.\n"));
             return;
         }
 
-        log.append("Scanning ").append(studentFolders.length).append(" student folders...\n");
+        sink.onEvent(GradingEvent.message("Scanning " + studentFolders.length + " student folders...\n"));
 
-        for (File studentDir : studentFolders) {
-            File mainFile = findMainFile(studentDir);
+        // Folders are scanned in parallel; toArray keeps the listing order for the log and results
+        File[] mainFiles;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            mainFiles = pool.submit(() -> Arrays.stream(studentFolders).parallel()
+                    .map(this::findMainFile)
+                    .toArray(File[]::new)).get();
+        } catch (InterruptedException | java.util.concurrent.ExecutionException e) {
+            sink.onEvent(GradingEvent.message("Scanning failed: " + e.getMessage() + "\n"));
+            return;
+        } finally {
+            pool.shutdown();
+        }
+
+        for (int i = 0; i < studentFolders.length; i++) {
+            File studentDir = studentFolders[i];
+            File mainFile = mainFiles[i];
             
             if (mainFile != null) {
                 // Program name is the folder name (Student Name)
                 Program p = new Program(studentDir.getName(), studentDir, mainFile);
                 programs.add(p);
-                log.append("  Found: ").append(p.getName()).append(" (Main: ").append(mainFile.getName()).append(")\n");
+                sink.onEvent(GradingEvent.discovery(studentDir.getName(), true,
+                        "  Found: " + p.getName() + " (Main: " + mainFile.getName() + ")\n"));
             } else {
-                log.append("  ⚠ WARNING: No file with 'public static void main' found in ").append(studentDir.getName()).append("\n");
+                sink.onEvent(GradingEvent.discovery(studentDir.getName(), false,
+                        "  ⚠ WARNING: No file with 'public static void main' found in " + studentDir.getName() + "\n"));
             }
         }
     }
 
+    // Build output, VCS metadata and IDE folders never hold the submission's sources
+    private static final Set<String> IGNORED_DIRS = Set.of(
+            ".git", ".svn", ".hg", ".idea", ".vscode", ".gradle", ".settings",
+            "build", "out", "bin", "target", "node_modules", "__MACOSX");
+
+    private static final byte[] MAIN_SIGNATURE =
+            "public static void main".getBytes(java.nio.charset.StandardCharsets.US_ASCII);
+
+    // Files larger than this are memory-mapped instead of read onto the heap
+    private static final long MAP_THRESHOLD = 64 * 1024;
+
     /**
-     * Recursive search for a file containing "public static void main"
+     * Depth-first search for the first .java file containing "public static void main",
+     * skipping irrelevant directories and stopping at the first hit
      */
     private File findMainFile(File directory) {
+        File[] found = new File[1];
         try {
-            return Files.walk(directory.toPath())
-                .filter(Files::isRegularFile)
-                .filter(p -> p.toString().endsWith(".java"))
-                .map(Path::toFile)
-                .filter(this::containsMainMethod)
-                .findFirst()
-                .orElse(null);
+            Files.walkFileTree(directory.toPath(), new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (!dir.equals(directory.toPath()) && IGNORED_DIRS.contains(dir.getFileName().toString())) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile() && file.getFileName().toString().endsWith(".java")
+                            && containsMainMethod(file, attrs.size())) {
+                        found[0] = file.toFile();
+                        return FileVisitResult.TERMINATE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
         } catch (IOException e) {
             System.err.println("Error scanning directory " + directory + ": " + e.getMessage());
-            return null;
         }
+        return found[0];
     }
 
-    private boolean containsMainMethod(File file) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (line.contains("public static void main")) {
-                    return true;
+    /**
+     * Single pass over the raw bytes; the signature is pure ASCII, so no decoding is needed
+     */
+    private static boolean containsMainMethod(Path file, long size) {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buf;
+            if (size > MAP_THRESHOLD) {
+                buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                buf = ByteBuffer.allocate((int) size);
+                while (buf.hasRemaining() && ch.read(buf) != -1) {
+                    // keep reading until full or EOF
                 }
+                buf.flip();
             }
+            return indexOf(buf, MAIN_SIGNATURE) >= 0;
         } catch (IOException e) {
             return false;
         }
-        return false;
+    }
+
+    private static int indexOf(ByteBuffer buf, byte[] pattern) {
+        byte first = pattern[0];
+        int last = buf.limit() - pattern.length;
+        outer:
+        for (int i = buf.position(); i <= last; i++) {
+            if (buf.get(i) != first) continue;
+            for (int j = 1; j < pattern.length; j++) {
+                if (buf.get(i + j) != pattern[j]) continue outer;
+            }
+            return i;
+        }
+        return -1;
     }
 
     // ---------------------- Compilation & Execution ----------------------
 
-    private boolean compileProgram(Program program, StringBuilder log) {
+    /**
+     * Compile a program, reusing cached output when its sources are unchanged
+     *
+     * Package-private so the benchmarks can time it on its own.
+     *
+     * @param submissionHash content hash of the sources, or null if unknown (no caching)
+     */
+    boolean compileProgram(Program program, String submissionHash, StringBuilder log) {
+        CompileCache cache = compileCache;
+        if (cache == null || submissionHash == null) {
+            return Boolean.TRUE.equals(compileFresh(program, log));
+        }
+
+        String key = cache.keyFor(submissionHash, compileMode);
+        Boolean cached = cache.restore(key, program, log);
+        if (cached != null) {
+            metrics.increment(GradingMetrics.Counter.COMPILE_CACHE_HITS);
+            log.append("    (unchanged sources, compiler output reused from cache)\n");
+            return cached;
+        }
+
+        StringBuilder compileLog = new StringBuilder();
+        long startMillis = System.currentTimeMillis();
+        Boolean compiled = compileFresh(program, compileLog);
+        log.append(compileLog);
+        // A compiler that could not run says nothing about the submission, so that is not cached
+        if (compiled != null) {
+            cache.store(key, program, compiled, compileLog.toString(), startMillis);
+        }
+        return Boolean.TRUE.equals(compiled);
+    }
+
+    /**
+     * @return whether the compiler accepted the program, or null if the compiler could not be run
+     */
+    private Boolean compileFresh(Program program, StringBuilder log) {
+        if (compileMode == CompileMode.IN_PROCESS) {
+            return inProcessCompiler.compile(program, log);
+        }
+        return compileWithJavacProcess(program, log);
+    }
+
+    private Boolean compileWithJavacProcess(Program program, StringBuilder log) {
         List<String> cmd = new ArrayList<>();
         cmd.add("javac");
         cmd.add("-sourcepath"); // Ensure it looks in the student's dir for other files
@@ -135,127 +542,872 @@ public class Coordinator {
             int exitCode = p.waitFor();
             return exitCode == 0;
 
-        } catch (IOException | InterruptedException e) {
+        } catch (IOException e) {
             log.append("Error invoking javac: ").append(e.getMessage()).append("\n");
-            return false;
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.append("Error invoking javac: interrupted\n");
+            return null;
         }
     }
 
-    private String runProgram(Program program, String stdin) throws IOException, InterruptedException {
+    /**
+     * Command line that runs a compiled program with the JVM options for the given limits
+     */
+    private static List<String> javaCommand(Program program, ResourceLimits limits) {
         List<String> cmd = new ArrayList<>();
         cmd.add("java");
+        cmd.addAll(limits.jvmOptions());
         cmd.add("-cp");
         cmd.add(program.getClassPathDir());
         cmd.add(program.getMainClassName());
+        return cmd;
+    }
 
-        ProcessBuilder pb = new ProcessBuilder(cmd);
+    /**
+     * Arm the output and child-process limits of a freshly started program
+     */
+    private static void enforceLimits(Process p, ResourceLimits limits, ProcessMeter meter,
+                                      OutputCapture out, OutputCapture err) {
+        if (limits.getMaxOutputBytes() > 0) {
+            out.enforceLimit(limits.getMaxOutputBytes(), () -> killProcessTree(p));
+            err.enforceLimit(limits.getMaxOutputBytes(), () -> killProcessTree(p));
+        }
+        if (limits.getMaxChildProcesses() >= 0) {
+            meter.limitChildProcesses(limits.getMaxChildProcesses(), () -> killProcessTree(p));
+        }
+    }
+
+    /**
+     * The result of a program that ran to the end (or was killed), with the limit it broke, if any
+     */
+    private static RunResult finish(RunResult result, ResourceLimits limits, ProcessMeter meter,
+                                    OutputCapture out, OutputCapture err, int exitCode) {
+        Verdict violation = limits.violation(meter.isTooManyProcesses(),
+                out.isLimitExceeded() || err.isLimitExceeded(), exitCode, err.getText());
+        result = result.withUsage(meter.getUsage());
+        return violation != null ? result.withLimitExceeded(violation) : result;
+    }
+
+    /**
+     * Run a compiled program in its own process (package-private for the benchmarks)
+     */
+    RunResult runProgram(Program program, String stdin, long timeoutMillis, int maxOutputBytes,
+                                 ResourceLimits limits) throws IOException, InterruptedException {
+        ProcessBuilder pb = new ProcessBuilder(javaCommand(program, limits));
         
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        long spawnStart = System.nanoTime();
         Process p = pb.start();
+        metrics.stop(GradingMetrics.Phase.SPAWN, spawnStart);
+        ProcessMeter meter = ProcessMeter.start(p);
 
-        // Write to STDIN
-        try (OutputStream os = p.getOutputStream()) {
-            if (stdin != null && !stdin.isEmpty()) {
-                os.write(stdin.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        // Feed stdin and drain stdout/stderr concurrently so neither pipe can fill up and
+        // block the child, and so the timeout below is never blocked on I/O
+        CompletableFuture.runAsync(() -> writeStdin(p, stdin), STREAM_PUMPS);
+        OutputCapture out = OutputCapture.start(p.getInputStream(), maxOutputBytes, STREAM_PUMPS);
+        OutputCapture err = OutputCapture.start(p.getErrorStream(), maxOutputBytes, STREAM_PUMPS);
+        enforceLimits(p, limits, meter, out, err);
+
+        boolean exited = meter.waitFor(timeoutMillis);
+        // A descendant that inherited the pipes can keep them open after the child exits
+        boolean drained = exited
+                && out.await(deadline - System.currentTimeMillis())
+                && err.await(deadline - System.currentTimeMillis());
+        if (!drained) {
+            killProcessTree(p);
+        }
+
+        boolean truncated = out.isTruncated() || err.isTruncated();
+        if (!exited) {
+            return finish(RunResult.timeout(out.getText(), truncated), limits, meter, out, err, -1);
+        }
+        return finish(RunResult.completed(out.getText(), err.getText(), p.exitValue(), truncated),
+                limits, meter, out, err, p.exitValue());
+    }
+
+    /**
+     * Run a test case in its own process while comparing its output against the expected output.
+     * File-backed test cases stream stdin from the input file and only keep a preview of the output.
+     * With early exit on, the process is killed as soon as the output diverges.
+     */
+    private RunResult runComparing(Program program, TestCase tc, OutputComparator comparator, long timeoutMillis,
+                                   int maxOutputBytes, ResourceLimits limits) throws IOException, InterruptedException {
+        ProcessBuilder pb = new ProcessBuilder(javaCommand(program, limits));
+        Reader expected = tc.isFileBacked()
+                ? Files.newBufferedReader(tc.getExpectedFile(), java.nio.charset.StandardCharsets.UTF_8)
+                : new StringReader(tc.getExpectedOutput());
+
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        Process p;
+        try {
+            long spawnStart = System.nanoTime();
+            p = pb.start();
+            metrics.stop(GradingMetrics.Phase.SPAWN, spawnStart);
+        } catch (IOException e) {
+            expected.close();
+            throw e;
+        }
+        ProcessMeter meter = ProcessMeter.start(p);
+
+        if (tc.isFileBacked()) {
+            CompletableFuture.runAsync(() -> streamStdin(p, tc.getInputFile()), STREAM_PUMPS);
+        } else {
+            CompletableFuture.runAsync(() -> writeStdin(p, tc.getInput()), STREAM_PUMPS);
+        }
+        OutputCapture err = OutputCapture.start(p.getErrorStream(), maxOutputBytes, STREAM_PUMPS);
+        // stderr counts as the end of the output, like RunResult.completed appends it
+        Supplier<String> tail = () -> {
+            try {
+                err.await(deadline - System.currentTimeMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
-            os.flush();
+            String stderr = err.getText();
+            return stderr.isEmpty() ? "" : "[Stderr]:\n" + stderr;
+        };
+        OutputCapture out = earlyExitOnDivergence
+                ? OutputCapture.startComparing(p.getInputStream(), maxOutputBytes, comparator, expected, tail,
+                        divergenceMarginChars, () -> killProcessTree(p), STREAM_PUMPS)
+                : OutputCapture.startComparing(p.getInputStream(), maxOutputBytes, comparator, expected, tail,
+                        Long.MAX_VALUE, null, STREAM_PUMPS);
+        enforceLimits(p, limits, meter, out, err);
+
+        boolean exited = meter.waitFor(timeoutMillis);
+        boolean drained = exited
+                && out.await(deadline - System.currentTimeMillis())
+                && err.await(deadline - System.currentTimeMillis());
+        if (!drained) {
+            killProcessTree(p);
+        }
+
+        // stdout was compared in full, so only a cut-off stderr makes this output incomplete
+        boolean truncated = err.isTruncated();
+        if (!exited) {
+            return finish(RunResult.timeout(out.getText(), truncated), limits, meter, out, err, -1);
+        }
+        if (out.getFailure() != null) {
+            throw out.getFailure();
         }
+        RunResult result = finish(RunResult.completed(out.getText(), err.getText(), p.exitValue(), truncated),
+                limits, meter, out, err, p.exitValue());
+        if (result.getLimitExceeded() != null) {
+            return result;
+        }
+        if (out.getDivergenceOffset() >= 0) {
+            return result.withDivergence(out.getDivergenceOffset());
+        }
+        return out.getMatch() != null ? result.withMatch(out.getMatch()) : result;
+    }
 
-        // Read STDOUT
-        StringBuilder out = new StringBuilder();
-        try (BufferedReader r = new BufferedReader(new InputStreamReader(p.getInputStream()))) {
-            String line;
-            while ((line = r.readLine()) != null) {
-                out.append(line).append("\n");
+    /**
+     * Run one test case and time it; null if the run itself failed
+     */
+    private RunResult runTimed(Program program, TestCase tc, TestSuit suite) {
+        try {
+            long start = System.nanoTime();
+            RunResult result = executeTest(program, tc, suite);
+            if (result.getElapsedMillis() < 0) {
+                result = result.withElapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
             }
+            return result;
+        } catch (Exception e) {
+            return null;
         }
+    }
 
-        // Read STDERR
-        StringBuilder err = new StringBuilder();
-        try (BufferedReader r = new BufferedReader(new InputStreamReader(p.getErrorStream()))) {
-            String line;
-            while ((line = r.readLine()) != null) {
-                err.append(line).append("\n");
+    /**
+     * WORKER_POOL and BATCH run submissions in helper JVMs that must trap System.exit, which
+     * JDK 24 and later cannot do. Without it, switch to PROCESS mode for good.
+     *
+     * @return the message saying so, or null if the mode can be used
+     */
+    String checkExecutionMode() {
+        if (executionMode == ExecutionMode.PROCESS) return null;
+        String problem = IsolatedRunner.exitTrapProblem();
+        if (problem == null) return null;
+        String message = executionMode + " mode is not available (" + problem + "); running in PROCESS mode instead.";
+        executionMode = ExecutionMode.PROCESS;
+        return message;
+    }
+
+    /**
+     * Run test cases against a compiled program outside of a suite run, as a worker node does for
+     * shipped work. In BATCH mode the tests the harness can take share one JVM.
+     *
+     * @return one result per test, null where the run itself failed; with stopAfterFirstFailure
+     *         it ends at the first failing test
+     */
+    RunResult[] runTests(Program program, List<TestCase> tests, TestSuit suite, boolean stopAfterFirstFailure) {
+        RunResult[] runs = new RunResult[tests.size()];
+        boolean batching = !stopAfterFirstFailure
+                && executionMode == ExecutionMode.BATCH && !suite.getResourceLimits().isEnforced();
+        List<Integer> batched = new ArrayList<>();
+        for (int i = 0; i < tests.size(); i++) {
+            if (batching && !tests.get(i).isFileBacked()) {
+                batched.add(i);
+                continue;
+            }
+            runs[i] = runTimed(program, tests.get(i), suite);
+            if (stopAfterFirstFailure && verdictOf(runs[i], tests.get(i), suite) != Verdict.PASS) {
+                return Arrays.copyOf(runs, i + 1);
             }
         }
 
-        if (err.length() > 0) {
-            out.append("[Stderr]:\n").append(err);
+        if (!batched.isEmpty()) {
+            List<TestCase> batch = new ArrayList<>();
+            for (int i : batched) batch.add(tests.get(i));
+            try {
+                RunResult[] results = batchRunner.runAll(program, batch, suite);
+                for (int k = 0; k < results.length; k++) {
+                    runs[batched.get(k)] = results[k];
+                }
+            } catch (Exception e) {
+                // Left null: recorded as errors by the coordinator
+            }
         }
+        return runs;
+    }
 
-        return normalize(out.toString());
+    /**
+     * The verdict of a run of tc; a null result means the run itself failed
+     */
+    private Verdict verdictOf(RunResult result, TestCase tc, TestSuit suite) {
+        if (result == null) return Verdict.ERROR;
+        if (result.getLimitExceeded() != null) return result.getLimitExceeded();
+        if (result.isTimedOut()) return Verdict.TIMEOUT;
+        if (result.getMatch() != null) {
+            return result.getMatch() ? Verdict.PASS : Verdict.FAIL; // compared while it ran
+        }
+        long start = System.nanoTime();
+        boolean match = tc.matches(result.getOutput(), suite.getComparatorFor(tc));
+        metrics.stop(GradingMetrics.Phase.COMPARE, start);
+        return match ? Verdict.PASS : Verdict.FAIL;
     }
 
-    private String normalize(String s) {
-        if (s == null) return "";
-        return s.trim().replace("\r\n", "\n");
+    /**
+     * Run one test case against a compiled program using the configured execution mode.
+     * File-backed test cases always run in their own process so their data can be streamed,
+     * and so do all tests of a suite with resource limits, since limits are per process.
+     */
+    private RunResult executeTest(Program program, TestCase tc, TestSuit suite) throws IOException, InterruptedException {
+        long timeoutMillis = suite.getTimeoutFor(tc);
+        int maxOutputBytes = suite.getMaxOutputBytes();
+        ResourceLimits limits = suite.getResourceLimits();
+        boolean ownProcess = workerPool == null || limits.isEnforced();
+        if (tc.isFileBacked() || (earlyExitOnDivergence && ownProcess)) {
+            return runComparing(program, tc, suite.getComparatorFor(tc), timeoutMillis, maxOutputBytes, limits);
+        }
+        if (!ownProcess) {
+            return workerPool.run(program, tc.getInput(), timeoutMillis, maxOutputBytes);
+        }
+        return runProgram(program, tc.getInput(), timeoutMillis, maxOutputBytes, limits);
+    }
+
+    private static void streamStdin(Process p, Path inputFile) {
+        try (OutputStream os = p.getOutputStream()) {
+            Files.copy(inputFile, os);
+        } catch (IOException ignored) {
+            // The program exited (or was killed) without reading all of its input
+        }
+    }
+
+    private static void writeStdin(Process p, String stdin) {
+        try (OutputStream os = p.getOutputStream()) {
+            if (stdin != null && !stdin.isEmpty()) {
+                os.write(stdin.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+            }
+            os.flush();
+        } catch (IOException ignored) {
+            // The program exited (or was killed) without reading all of its input
+        }
+    }
+
+    /**
+     * Forcibly kills a process and everything it spawned. Descendants are collected
+     * first, because once the parent dies they get re-parented and can no longer be found.
+     */
+    private static void killProcessTree(Process p) {
+        ProcessHandle root = p.toHandle();
+        List<ProcessHandle> descendants = root.descendants().collect(Collectors.toList());
+        root.destroyForcibly();
+        descendants.forEach(ProcessHandle::destroyForcibly);
     }
 
     // ---------------------- Execution Logic ----------------------
 
+    /**
+     * Run a suite and return the whole log as one string. Convenient for small runs;
+     * large runs should register a {@link GradingListener} and call {@link #runSuite} instead.
+     */
     public String executeWithTestSuite(File rootFolder, String suiteName) {
         StringBuilder log = new StringBuilder();
+        GradingListener collector = event -> {
+            if (event.getText() != null) {
+                synchronized (log) {
+                    log.append(event.getText());
+                }
+            }
+        };
 
-        TestSuit suite = listOfTestSuites.getSuite(suiteName);
-        if (suite == null) return "Test suite not found.";
+        addListener(collector);
+        try {
+            runSuite(rootFolder, suiteName);
+        } finally {
+            removeListener(collector);
+        }
+        synchronized (log) {
+            return log.toString();
+        }
+    }
+
+    /**
+     * Run a suite against every program under rootFolder, reporting progress only through
+     * the registered listeners so nothing accumulates in memory
+     *
+     * @return false if the suite could not be run at all
+     */
+    public boolean runSuite(File rootFolder, String suiteName) {
+        TestSuit live = listOfTestSuites.getSuite(suiteName);
+        if (live == null) {
+            emit(GradingEvent.message("Test suite not found."));
+            return false;
+        }
+
+        // The run works on a frozen copy: edits made while grading apply to the next run, and the
+        // saved result file always matches the test cases that were actually run
+        TestSuit suite = live.snapshot();
         
         // FIX: Changed from .isEmpty() to .size() == 0
-        if (suite.getTestCases().size() == 0) return "Test suite is empty.";
+        if (suite.getTestCases().size() == 0) {
+            emit(GradingEvent.message("Test suite is empty."));
+            return false;
+        }
 
-        buildProgramsFromRoot(rootFolder, log);
+        GradingMetrics metrics = new GradingMetrics(suiteName);
+        lastMetrics = metrics;
+        long discoveryStart = System.nanoTime();
+        discoverPrograms(rootFolder, this::emit);
+        metrics.stop(GradingMetrics.Phase.DISCOVERY, discoveryStart);
+        metrics.add(GradingMetrics.Counter.PROGRAMS, programs.size());
 
         if (programs.asList().isEmpty()) {
-            log.append("No valid programs found to run.\n");
-            return log.toString();
+            emit(GradingEvent.message("No valid programs found to run.\n"));
+            return false;
         }
 
-        suite.resetAllTestCases();
-        log.append("\nStarting Execution of Suite: ").append(suiteName).append("\n");
-        log.append("--------------------------------------------------\n");
+        live.resetAllTestCases();
+        emit(GradingEvent.message("\nStarting Execution of Suite: " + suiteName + "\n"
+                + "--------------------------------------------------\n"));
 
+        List<TestCase> tests = suite.getTestCases().asList();
+        List<String> programNames = new ArrayList<>();
         for (Program program : programs.asList()) {
-            log.append("\nTesting Program: ").append(program.getName()).append("\n");
+            programNames.add(program.getName());
+        }
+        ResultMatrix results = new ResultMatrix(programNames, tests.size(), suite.isRetainingOutputs());
 
-            if (!compileProgram(program, log)) {
-                log.append("  ❌ Compilation Failed.\n");
+        GradingSchedule schedule = historyScheduling
+                ? GradingSchedule.fromHistory(history, suiteName, tests, GradingSchedule.DEFAULT_RUNS)
+                : GradingSchedule.none(tests.size());
+        if (schedule.getRunCount() > 0) {
+            emit(GradingEvent.message("Ordered by " + schedule.getRunCount()
+                    + " earlier run(s): slowest programs first, likely failures first.\n"));
+        }
+
+        List<ProgramTask> tasks = new ArrayList<>();
+        for (int row = 0; row < programs.size(); row++) {
+            tasks.add(new ProgramTask(programs.get(row), suite, tests, results, row,
+                    schedule.testOrder(programs.get(row).getName())));
+        }
+
+        // Every program is compiled and every (program, test case) pair is run as its
+        // own task; idle workers steal queued test runs from busy ones. Programs are
+        // submitted in schedule order, and the pool takes submissions first in, first out.
+        // Shipped programs hold no pool thread while a node grades them.
+        String unusableMode = checkExecutionMode();
+        if (unusableMode != null) {
+            emit(GradingEvent.message(unusableMode + "\n"));
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        this.metrics = metrics; // until the pool is done; single checks outside a run record nothing
+        if (executionMode == ExecutionMode.WORKER_POOL) {
+            workerPool = new WorkerPool(parallelism, STREAM_PUMPS);
+        }
+        if (!workerNodes.isEmpty() && (workerToken == null || workerToken.isEmpty())) {
+            emit(GradingEvent.message("No worker token set, grading here.\n"));
+        } else if (!workerNodes.isEmpty()) {
+            cluster = new GradingCluster(workerNodes, workerToken, this::emit);
+            if (cluster.getLiveNodeCount() == 0) {
+                emit(GradingEvent.message("No worker node reachable, grading here.\n"));
+                cluster.close();
+                cluster = null;
+            } else {
+                emit(GradingEvent.message("Distributing to " + cluster.getLiveNodeCount() + " worker node(s) with "
+                        + cluster.getSlots() + " slot(s).\n"));
+            }
+        }
+        try {
+            for (int row : schedule.programOrder(programNames)) {
+                ProgramTask task = tasks.get(row);
+                GradingCluster nodes = cluster;
+                if (nodes != null) {
+                    pool.execute(() -> task.ship(nodes, pool));
+                } else {
+                    pool.execute(task);
+                }
+            }
+            for (ProgramTask task : tasks) {
+                task.done.join();
+            }
+        } finally {
+            pool.shutdown();
+            if (this.metrics == metrics) {
+                this.metrics = GradingMetrics.NONE;
+            }
+            if (inProcessCompiler != null) {
+                inProcessCompiler.closeFileManagers();
+            }
+            if (workerPool != null) {
+                workerPool.close();
+                workerPool = null;
+            }
+            if (cluster != null) {
+                cluster.close();
+                cluster = null;
+            }
+        }
+
+        // Store in discovery order so stored results do not depend on scheduling.
+        // The suite's shared TestCase objects are never written; all outcomes live in the matrix.
+        long compileMillis = 0;
+        for (ProgramTask task : tasks) {
+            compileMillis += task.compileMillis;
+            Program program = task.program;
+
+            if (!task.compiled) {
                 program.setCompiled(false);
                 suite.storeProgramResult(program.getName(), false, 0, 0);
                 continue;
             }
 
             program.setCompiled(true);
-            int passed = 0;
-            int failed = 0;
+            program.setTestResults(task.passed, task.failed);
+            suite.storeProgramResult(program.getName(), true, task.passed, task.failed, task.timedOut);
+        }
+
+        results.seal();
+        suite.setLastResults(results);
+        suite.updateStatistics();
+        suite.setLastRunDate(LocalDateTime.now());
+        long reportStart = System.nanoTime();
+        boolean saved = suite.saveResults(history); // Save the result file, report and history entry
+        metrics.stop(GradingMetrics.Phase.REPORT_WRITE, reportStart);
+        metrics.finish();
+        if (saved) {
+            try {
+                metrics.writeFor(suite.getLastResultFile());
+            } catch (IOException e) {
+                System.err.println("Warning: Could not save metrics of '" + suiteName + "': " + e.getMessage());
+            }
+        }
+        live.adoptRun(suite);
+        if (suiteStore != null) {
+            try {
+                suiteStore.saveSettings(live); // last run date
+            } catch (IOException e) {
+                System.err.println("Warning: Could not save suite '" + suiteName + "': " + e.getMessage());
+            }
+        }
+
+        emit(GradingEvent.message("\nCompiled " + tasks.size() + " program(s) in " + compileMillis
+                + " ms total (" + compileMode + " compiler).\n"
+                + "\nExecution Complete. Results saved to 'test_results' folder.\n"));
+        return true;
+    }
+
+    /**
+     * Compiles one program, then forks one {@link TestTask} per test case.
+     */
+    private class ProgramTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final Program program;
+        final TestSuit suite;
+        final List<TestCase> tests;
+        final ResultMatrix results;
+        final int row;
+        final List<Integer> testOrder; // indexes of the tests in the order they should run
+        final StringBuilder log = new StringBuilder(); // compiler output, folded into the summary
+        final CompletableFuture<Void> done = new CompletableFuture<>(); // graded here or remotely
+        RemoteJob.Result answer; // from a worker node; null = grade here
+        ResultCache.Entry[] remoteCached;
+        List<Integer> remotePending;
+        List<Integer> remoteSkipped;
+        String[] testKeys;
+        boolean compiled;
+        long compileMillis;
+        String submissionHash;
+        boolean hashed;
+        int cachedResults;
+        int passed;
+        int failed;
+        int timedOut;
+        int skipped;
+
+        ProgramTask(Program program, TestSuit suite, List<TestCase> tests, ResultMatrix results, int row,
+                    List<Integer> testOrder) {
+            this.program = program;
+            this.suite = suite;
+            this.tests = tests;
+            this.results = results;
+            this.row = row;
+            this.testOrder = testOrder;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                if (answer != null) {
+                    recordRemote(answer);
+                    summarize();
+                } else {
+                    gradeHere();
+                }
+                done.complete(null);
+            } catch (Throwable t) {
+                done.completeExceptionally(t);
+                throw t;
+            }
+        }
+
+        private void hashSources() {
+            if (hashed || (compileCache == null && resultCache == null)) return;
+            hashed = true;
+            try {
+                submissionHash = ContentHash.ofSubmission(program);
+            } catch (IOException e) {
+                log.append("    Could not hash sources, caching disabled: ").append(e.getMessage()).append("\n");
+            }
+        }
+
+        private void gradeHere() {
+            hashSources();
+            emit(GradingEvent.compileStart(program.getName()));
+            long start = System.nanoTime();
+            compiled = compileProgram(program, submissionHash, log);
+            metrics.stop(GradingMetrics.Phase.COMPILE, start);
+            compileMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            emit(GradingEvent.compileEnd(program.getName(), compiled, compileMillis));
+            if (!compiled) {
+                metrics.increment(GradingMetrics.Counter.COMPILE_FAILURES);
+                log.append("  ❌ Compilation Failed.\n");
+                summarize();
+                return;
+            }
+
+            ResultCache cache = submissionHash != null ? resultCache : null;
+            testKeys = cache != null ? new String[tests.size()] : null;
+            List<Integer> pending = new ArrayList<>();
+            List<Integer> afterFailure = new ArrayList<>(); // ordered after a cached failure
+            boolean cachedFailure = false;
+            for (int i : testOrder) {
+                if (stopAfterFirstFailure && cachedFailure) {
+                    afterFailure.add(i);
+                    continue;
+                }
+                if (cache != null) {
+                    testKeys[i] = ResultCache.testKey(tests.get(i), suite, earlyExitOnDivergence, divergenceMarginChars);
+                    ResultCache.Entry entry = forceFullRerun ? null : cache.lookup(submissionHash, testKeys[i]);
+                    if (entry != null) {
+                        results.set(row, i, entry.verdict, entry.truncated, entry.output);
+                        cachedResults++;
+                        metrics.increment(GradingMetrics.Counter.RESULT_CACHE_HITS);
+                        cachedFailure = entry.verdict != Verdict.PASS;
+                        emit(GradingEvent.testVerdict(program.getName(), i, entry.verdict));
+                        continue;
+                    }
+                }
+                pending.add(i);
+            }
+
+            if (stopAfterFirstFailure) {
+                runUntilFirstFailure(pending);
+                for (int i : afterFailure) skip(i);
+            } else if (executionMode == ExecutionMode.BATCH && !suite.getResourceLimits().isEnforced()) {
+                // File-backed test cases are streamed in their own process instead of the harness
+                List<Integer> batched = new ArrayList<>();
+                List<TestTask> streamed = new ArrayList<>();
+                for (int i : pending) {
+                    if (tests.get(i).isFileBacked()) streamed.add(new TestTask(this, i));
+                    else batched.add(i);
+                }
+                for (TestTask task : streamed) task.fork();
 
-            for (TestCase tc : suite.getTestCases().asList()) {
+                List<TestCase> batch = new ArrayList<>();
+                for (int i : batched) batch.add(tests.get(i));
                 try {
-                    String actual = runProgram(program, tc.getInput());
-                    tc.evaluate(actual);
-                    if (tc.isPassed()) passed++;
-                    else failed++;
+                    RunResult[] runs = batchRunner.runAll(program, batch, suite);
+                    for (int k = 0; k < runs.length; k++) {
+                        record(batched.get(k), runs[k]);
+                    }
                 } catch (Exception e) {
-                    failed++;
+                    for (int i : batched) {
+                        if (results.get(row, i) == null) record(i, null);
+                    }
+                }
+                for (TestTask task : streamed) task.join();
+            } else {
+                List<TestTask> runs = new ArrayList<>();
+                for (int i : pending) {
+                    runs.add(new TestTask(this, i));
                 }
+                invokeAll(runs);
             }
 
-            program.setTestResults(passed, failed);
-            suite.storeProgramResult(program.getName(), true, passed, failed);
-            
-            log.append("  Result: ").append(passed).append("/").append(suite.getTestCases().size())
-               .append(" passed (").append(String.format("%.1f%%", program.getPassPercentage())).append(")\n");
+            summarize();
         }
 
-        suite.updateStatistics();
-        suite.setLastRunDate(LocalDateTime.now());
-        suite.saveResults(); // Save to text file
+        /**
+         * Ship this program to a worker node without waiting for the answer; tests with a cached
+         * outcome are not shipped. When the answer comes, this task goes to the pool to record it,
+         * or to grade the program here if no node could.
+         */
+        void ship(GradingCluster nodes, ForkJoinPool pool) {
+            CompletableFuture<RemoteJob.Result> future;
+            try {
+                future = nodes.submit(prepareJob());
+            } catch (IOException e) {
+                future = CompletableFuture.failedFuture(e);
+            } catch (RuntimeException e) {
+                done.completeExceptionally(e);
+                throw e;
+            }
+            future.whenComplete((result, error) -> {
+                if (error != null) {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    log.append("    Remote grading failed, graded here instead: ").append(cause.getMessage()).append("\n");
+                } else {
+                    answer = result;
+                }
+                pool.execute(this);
+            });
+        }
 
-        log.append("\nExecution Complete. Results saved to 'test_results' folder.\n");
-        return log.toString();
+        /**
+         * Look up the cached outcomes and package the tests still to run, in schedule order
+         */
+        private RemoteJob prepareJob() throws IOException {
+            hashSources();
+            ResultCache cache = submissionHash != null ? resultCache : null;
+            String[] keys = cache != null ? new String[tests.size()] : null;
+            ResultCache.Entry[] cached = new ResultCache.Entry[tests.size()];
+            List<Integer> pending = new ArrayList<>();
+            List<Integer> afterFailure = new ArrayList<>(); // ordered after a cached failure
+            boolean cachedFailure = false;
+            for (int i : testOrder) {
+                if (stopAfterFirstFailure && cachedFailure) {
+                    afterFailure.add(i);
+                    continue;
+                }
+                if (cache != null) {
+                    keys[i] = ResultCache.testKey(tests.get(i), suite, earlyExitOnDivergence, divergenceMarginChars);
+                    cached[i] = forceFullRerun ? null : cache.lookup(submissionHash, keys[i]);
+                    if (cached[i] != null) {
+                        cachedFailure = cached[i].verdict != Verdict.PASS;
+                        continue;
+                    }
+                }
+                pending.add(i);
+            }
+            List<TestCase> shipped = new ArrayList<>();
+            for (int i : pending) shipped.add(tests.get(i));
+
+            testKeys = keys;
+            remoteCached = cached;
+            remotePending = pending;
+            remoteSkipped = afterFailure;
+            return RemoteJob.of(program, suite, shipped, earlyExitOnDivergence, divergenceMarginChars,
+                    stopAfterFirstFailure);
+        }
+
+        /**
+         * Record what a worker node answered, with the outcomes that came from the cache
+         */
+        private void recordRemote(RemoteJob.Result remote) {
+            ResultCache.Entry[] cached = remoteCached;
+            List<Integer> pending = remotePending;
+            compiled = remote.compiled;
+            compileMillis = remote.compileMillis;
+            metrics.increment(GradingMetrics.Counter.REMOTE_JOBS);
+            metrics.record(GradingMetrics.Phase.COMPILE, TimeUnit.MILLISECONDS.toNanos(compileMillis));
+            log.append(remote.compileLog);
+            // Sent only now: a job that fails remotely is compiled here, which reports its own start
+            emit(GradingEvent.compileStart(program.getName()));
+            emit(GradingEvent.compileEnd(program.getName(), compiled, compileMillis));
+            if (!compiled) {
+                metrics.increment(GradingMetrics.Counter.COMPILE_FAILURES);
+                log.append("  ❌ Compilation Failed.\n");
+                return;
+            }
+
+            for (int i = 0; i < tests.size(); i++) {
+                if (cached[i] != null) {
+                    results.set(row, i, cached[i].verdict, cached[i].truncated, cached[i].output);
+                    cachedResults++;
+                    metrics.increment(GradingMetrics.Counter.RESULT_CACHE_HITS);
+                    emit(GradingEvent.testVerdict(program.getName(), i, cached[i].verdict));
+                }
+            }
+            for (int k = 0; k < pending.size(); k++) {
+                if (k < remote.runs.length) {
+                    record(pending.get(k), remote.runs[k]);
+                } else if (stopAfterFirstFailure) {
+                    skip(pending.get(k));
+                } else {
+                    record(pending.get(k), null);
+                }
+            }
+            for (int i : remoteSkipped) skip(i);
+        }
+
+        /**
+         * Run the pending tests one at a time, in schedule order, and skip the rest once one fails
+         */
+        private void runUntilFirstFailure(List<Integer> pending) {
+            boolean stop = false;
+            for (int i : pending) {
+                if (stop) {
+                    skip(i);
+                } else {
+                    stop = record(i, runTimed(program, tests.get(i), suite)) != Verdict.PASS;
+                }
+            }
+        }
+
+        /**
+         * Count the verdicts and publish this program's log block
+         */
+        private void summarize() {
+            StringBuilder block = new StringBuilder();
+            block.append("\nTesting Program: ").append(program.getName()).append("\n");
+            block.append(log);
+
+            if (compiled) {
+                if (cachedResults > 0) {
+                    block.append("  ↺ ").append(cachedResults).append("/").append(tests.size())
+                         .append(" test results reused from earlier runs\n");
+                }
+                for (int i = 0; i < tests.size(); i++) {
+                    Verdict verdict = results.get(row, i);
+                    if (verdict == Verdict.PASS) {
+                        passed++;
+                    } else {
+                        failed++;
+                        if (verdict == Verdict.SKIPPED) {
+                            skipped++;
+                        } else if (verdict == Verdict.TIMEOUT) {
+                            timedOut++;
+                            block.append("  ⏱ Test #").append(i + 1).append(" timed out after ")
+                                 .append(suite.getTimeoutFor(tests.get(i))).append(" ms\n");
+                        } else if (verdict != null && verdict.isLimitExceeded()) {
+                            block.append("  ⛔ Test #").append(i + 1).append(" stopped: ").append(verdict.getLabel())
+                                 .append(" (").append(suite.getResourceLimits()).append(")\n");
+                        }
+                    }
+                    long diverged = results.getDivergence(row, i);
+                    if (diverged >= 0 && earlyExitOnDivergence) {
+                        block.append("  ↯ Test #").append(i + 1).append(" stopped at the first divergence, char ")
+                             .append(diverged).append("\n");
+                    }
+                    if (results.isTruncated(row, i)) {
+                        block.append("  ✂ Test #").append(i + 1).append(" output truncated at ")
+                             .append(suite.getMaxOutputBytes()).append(" bytes\n");
+                    }
+                }
+                if (skipped > 0) {
+                    block.append("  ⏭ ").append(skipped).append(" test(s) skipped after the first failure\n");
+                }
+                double rate = tests.isEmpty() ? 0.0 : passed * 100.0 / tests.size();
+                block.append("  Result: ").append(passed).append("/").append(tests.size())
+                     .append(" passed (").append(String.format("%.1f%%", rate)).append(")\n");
+            }
+
+            log.setLength(0);
+            emit(GradingEvent.programSummary(program.getName(), compiled, passed, failed, block.toString()));
+        }
+
+        /**
+         * Store the outcome of test #index; a null result means the run itself failed.
+         * Called concurrently for different indexes.
+         *
+         * @return the verdict
+         */
+        Verdict record(int index, RunResult result) {
+            Verdict verdict = verdictOf(result, tests.get(index), suite);
+            if (result == null) {
+                metrics.increment(GradingMetrics.Counter.RUN_ERRORS);
+                results.set(row, index, verdict, false, null);
+            } else {
+                if (result.getElapsedMillis() >= 0) {
+                    metrics.record(GradingMetrics.Phase.TEST_RUN, TimeUnit.MILLISECONDS.toNanos(result.getElapsedMillis()));
+                }
+                if (result.getDivergenceOffset() >= 0) {
+                    results.setDivergence(row, index, result.getDivergenceOffset());
+                }
+                results.set(row, index, verdict, result.isOutputTruncated(), result.getOutput(), result.getUsage());
+
+                // Errors and timeouts can be the grader's or the machine's fault, so only real outcomes are memoized
+                if (testKeys != null && ResultCache.isCacheable(verdict)) {
+                    resultCache.store(submissionHash, testKeys[index], verdict, result.isOutputTruncated(), result.getOutput());
+                }
+            }
+            emit(GradingEvent.testVerdict(program.getName(), index, verdict));
+            return verdict;
+        }
+
+        /**
+         * Record test #index as not run because an earlier test failed
+         */
+        void skip(int index) {
+            metrics.increment(GradingMetrics.Counter.TESTS_SKIPPED);
+            results.set(row, index, Verdict.SKIPPED, false, null);
+            emit(GradingEvent.testVerdict(program.getName(), index, Verdict.SKIPPED));
+        }
+    }
+
+    /**
+     * Runs a single (program, test case) pair. Only writes its own cell of the result matrix.
+     */
+    private class TestTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final ProgramTask parent;
+        final int index;
+
+        TestTask(ProgramTask parent, int index) {
+            this.parent = parent;
+            this.index = index;
+        }
+
+        @Override
+        protected void compute() {
+            parent.record(index, runTimed(parent.program, parent.tests.get(index), parent.suite));
+        }
     }
 
     // ---------------------- Result Management (Version 2) ----------------------
 
+    /**
+     * Report of a saved run; JSONL result files are rendered, older text reports are shown as they are
+     */
     public String reloadResults(Path resultFile) {
         try {
+            if (ResultLog.isResultLog(resultFile)) {
+                return ResultLog.read(resultFile).toReport();
+            }
             return Files.readString(resultFile);
         } catch (IOException e) {
             return "Error reading file: " + e.getMessage();
@@ -263,11 +1415,14 @@ public class Coordinator {
     }
 
     /**
-     * Parses two result text files and creates a side-by-side comparison table.
+     * Side-by-side comparison of two runs. JSONL result files are compared per test case as well;
+     * text reports from older versions only give the pass rate.
      */
     public String compareResultFiles(Path file1, Path file2) {
-        Map<String, String> results1 = parseResultFile(file1);
-        Map<String, String> results2 = parseResultFile(file2);
+        ResultLog log1 = loadResultLog(file1);
+        ResultLog log2 = loadResultLog(file2);
+        Map<String, String> results1 = log1 != null ? log1.getPassRates() : parseResultFile(file1);
+        Map<String, String> results2 = log2 != null ? log2.getPassRates() : parseResultFile(file2);
 
         StringBuilder sb = new StringBuilder();
         sb.append("═══════════════════════════════════════════════════════════════════\n");
@@ -301,12 +1456,93 @@ public class Coordinator {
 
             sb.append(String.format("%-25s | %-20s | %-20s | %s\n", student, r1, r2, change));
         }
+
+        if (log1 != null && log2 != null) {
+            appendVerdictChanges(sb, log1, log2);
+        }
         
         return sb.toString();
     }
 
+    private ResultLog loadResultLog(Path file) {
+        if (!ResultLog.isResultLog(file)) return null;
+        try {
+            return ResultLog.read(file);
+        } catch (IOException e) {
+            System.err.println("Error parsing file " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * List the test cases whose verdict or output changed between two runs of the same tests
+     */
+    private void appendVerdictChanges(StringBuilder sb, ResultLog log1, ResultLog log2) {
+        ResultMatrix m1 = log1.getResults();
+        ResultMatrix m2 = log2.getResults();
+        if (m1 == null || m2 == null) return;
+
+        sb.append("\nPer-test changes:\n");
+        if (m1.getTestCount() != m2.getTestCount()) {
+            sb.append("  (runs have different numbers of test cases, skipped)\n");
+            return;
+        }
+
+        Map<String, Integer> rows2 = new HashMap<>();
+        for (int p = 0; p < m2.getProgramCount(); p++) {
+            rows2.put(m2.getProgramName(p), p);
+        }
+
+        int changes = 0;
+        for (int p1 = 0; p1 < m1.getProgramCount(); p1++) {
+            Integer p2 = rows2.get(m1.getProgramName(p1));
+            if (p2 == null) continue;
+            for (int t = 0; t < m1.getTestCount(); t++) {
+                Verdict v1 = m1.get(p1, t);
+                Verdict v2 = m2.get(p2, t);
+                if (v1 == null || v2 == null) continue;
+                if (v1 != v2) {
+                    sb.append(String.format("  %-25s Test #%d: %s → %s\n", m1.getProgramName(p1), t + 1, v1, v2));
+                    changes++;
+                } else if (m1.getOutputHash(p1, t) != m2.getOutputHash(p2, t)) {
+                    sb.append(String.format("  %-25s Test #%d: %s, output changed\n", m1.getProgramName(p1), t + 1, v1));
+                    changes++;
+                }
+            }
+        }
+        if (changes == 0) {
+            sb.append("  none\n");
+        }
+    }
+
+    public ResultHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Pass-rate trend of one student across every recorded run of a suite
+     */
+    public String passRateTrend(String suiteName, String student) {
+        try {
+            return history.trendReport(suiteName, student);
+        } catch (IOException e) {
+            return "Error reading result history: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Pass rates of every student over the last n recorded runs of a suite
+     */
+    public String compareLastRuns(String suiteName, int n) {
+        try {
+            return history.compareLastRuns(suiteName, n);
+        } catch (IOException e) {
+            return "Error reading result history: " + e.getMessage();
+        }
+    }
+
     /**
-     * Helper to parse the text report format.
+     * Helper to parse the text report format written before result files were JSONL.
      */
     private Map<String, String> parseResultFile(Path path) {
         Map<String, String> map = new HashMap<>();
@@ -0,0 +1,119 @@
+import java.io.IOException;
+
+/**
+ * The original comparison: leading and trailing whitespace (any char &lt;= ' ', as
+ * {@link String#trim}) is ignored and CRLF counts as LF, everything else must be identical.
+ * Nothing is copied: whitespace runs are walked on both sides at once, keeping only their
+ * lengths and where they first differ, until what follows shows whether they were trailing.
+ * Divergence offsets count chars of the normalized output.
+ */
+public class ExactComparator implements OutputComparator {
+
+    @Override
+    public String getName() {
+        return "exact";
+    }
+
+    @Override
+    public long divergence(CharScanner actual, CharScanner expected, long marginChars) throws IOException {
+        Normalizer a = new Normalizer(actual);
+        Normalizer e = new Normalizer(expected);
+        e.skipSpace(Long.MAX_VALUE);
+        if (isSpace(a.skipSpace(marginChars))) return 0;
+        long offset = 0;
+        while (true) {
+            int ce = e.peek();
+            int ca = a.peek();
+            if (!isSpace(ce) || !isSpace(ca)) {
+                if (ce == -1 && ca == -1) return MATCH;
+                if (ca != ce) {
+                    // Only a whitespace run on the other side that turns out to be trailing still matches
+                    if (ce == -1 && isSpace(ca)) return a.skipSpace(marginChars) == -1 ? MATCH : offset;
+                    if (ca == -1 && isSpace(ce)) return e.skipSpace(Long.MAX_VALUE) == -1 ? MATCH : offset;
+                    return offset;
+                }
+                a.read();
+                e.read();
+                offset++;
+                continue;
+            }
+
+            // Both are in a whitespace run: walk them together, then read what follows each
+            long common = 0;
+            long firstDifference = -1;
+            while (isSpace(a.peek()) && isSpace(e.peek())) {
+                if (a.read() != e.read() && firstDifference < 0) firstDifference = common;
+                common++;
+            }
+            int afterExpected = e.skipSpace(Long.MAX_VALUE);
+            int afterActual = a.skipSpace(marginChars);
+            if (afterExpected == -1) {
+                // The expected output ends here: the actual output may only add whitespace
+                return afterActual == -1 ? MATCH : offset;
+            }
+            if (afterActual == -1 || isSpace(afterActual)) {
+                // Ended early, or printed more than the margin of extra whitespace
+                return afterActual == -1 ? offset : offset + (firstDifference >= 0 ? firstDifference : common);
+            }
+            if (firstDifference >= 0) return offset + firstDifference;
+            if (a.runLength() != e.runLength()) return offset + common;
+            offset += common;
+        }
+    }
+
+    private static boolean isSpace(int c) {
+        return c != -1 && c <= ' ';
+    }
+
+    /**
+     * A scanner with CRLF read as LF
+     */
+    static class Normalizer {
+        private final CharScanner in;
+        private int next;
+        private boolean peeked;
+        private long runLength; // whitespace chars read since the last other char
+
+        Normalizer(CharScanner in) {
+            this.in = in;
+        }
+
+        int peek() throws IOException {
+            if (!peeked) {
+                next = in.read();
+                if (next == '\r' && in.peek() == '\n') {
+                    next = in.read();
+                }
+                peeked = true;
+            }
+            return next;
+        }
+
+        int read() throws IOException {
+            int c = peek();
+            peeked = false;
+            runLength = isSpace(c) ? runLength + 1 : 0;
+            return c;
+        }
+
+        /**
+         * Read on to the end of the current whitespace run, but no more than max chars of it
+         *
+         * @return the char after the run, -1 at the end, or whitespace if the run went past max
+         */
+        int skipSpace(long max) throws IOException {
+            for (long n = 0; isSpace(peek()); n++) {
+                if (n >= max) return peek();
+                read();
+            }
+            return peek();
+        }
+
+        /**
+         * Length of the whitespace run read so far
+         */
+        long runLength() {
+            return runLength;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+/**
+ * How compiled submissions are run against test cases.
+ */
+public enum ExecutionMode {
+    /** Start a fresh java process for every test case */
+    PROCESS,
+    /** Reuse a pool of warm worker JVMs, each run in a fresh class loader; not a sandbox, see {@link IsolatedRunner} */
+    WORKER_POOL,
+    /** Start one JVM per program that runs all of its test cases, each in a fresh class loader; not a sandbox either */
+    BATCH
+}
@@ -0,0 +1,309 @@
+import java.io.File;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Headless front end for build servers and cron: grades every program under a root folder
+ * against suites from the suite store, streams progress to stdout, and leaves the usual JSONL
+ * result file and report in test_results/ for each suite.
+ *
+ *   java GraderCli --root submissions --suite Lab1 [--suite Lab2 | --all] [options]
+ *
+ * Suites are read from the store but never written back, so overrides given here (timeout,
+ * limits, comparator) only apply to this run. No JavaFX class is loaded.
+ */
+public class GraderCli {
+    public static final int EXIT_ALL_PASSED = 0;
+    public static final int EXIT_TESTS_FAILED = 1;  // a program failed a test or did not compile
+    public static final int EXIT_USAGE = 2;
+    public static final int EXIT_NOT_RUN = 3;       // a suite was missing or empty, or nothing to grade
+    public static final int EXIT_ERROR = 4;         // grading itself broke, e.g. results not saved
+
+    private static final String USAGE = String.join("\n",
+            "Usage: java GraderCli --root <dir> (--suite <name>)... [options]",
+            "",
+            "  --root <dir>            folder with one sub-folder per student",
+            "  --suite <name>          suite to run, may be repeated",
+            "  --all                   run every suite in the store",
+            "  --suites-dir <dir>      suite store (default " + SuiteStore.DEFAULT_DIRECTORY + ")",
+            "  --parallelism <n>       programs and tests graded at once (default: CPU count)",
+            "  --mode <mode>           PROCESS, WORKER_POOL or BATCH (default PROCESS)",
+            "  --compiler <mode>       PROCESS or IN_PROCESS (default PROCESS)",
+            "  --worker <host:port>    grade on this WorkerNode, may be repeated",
+            "  --worker-token <secret> token the worker nodes were started with (default $" + WorkerNode.TOKEN_ENV + ")",
+            "  --timeout <ms>          per-test timeout instead of the suite's",
+            "  --comparator <name>     exact, tokens, whitespace or numeric:<epsilon>",
+            "  --heap <MiB>            max heap per run",
+            "  --stack <KiB>           thread stack size per run",
+            "  --max-output <bytes>    kill runs that print more than this",
+            "  --max-processes <n>     kill runs with more child processes than this",
+            "  --early-exit            stop a run as soon as its output diverges",
+            "  --fail-fast             skip a program's remaining tests after its first failure",
+            "  --no-history-order      run in discovery order, not slowest and likely failures first",
+            "  --rerun                 ignore cached results",
+            "  --quiet | --verbose     one line per program | also every test verdict",
+            "",
+            "Exit codes: 0 all passed, 1 tests failed, 2 usage, 3 nothing run, 4 error");
+
+    private File root;
+    private final List<String> suiteNames = new ArrayList<>();
+    private boolean allSuites;
+    private Path suitesDir = Paths.get(SuiteStore.DEFAULT_DIRECTORY);
+    private Integer parallelism;
+    private ExecutionMode executionMode = ExecutionMode.PROCESS;
+    private CompileMode compileMode = CompileMode.PROCESS;
+    private final List<InetSocketAddress> workerNodes = new ArrayList<>();
+    private String workerToken = System.getenv(WorkerNode.TOKEN_ENV);
+    private Long timeoutMillis;
+    private OutputComparator comparator;
+    private Integer heapMb;
+    private Integer stackKb;
+    private Long maxOutputBytes;
+    private Integer maxChildProcesses;
+    private boolean earlyExit;
+    private boolean failFast;
+    private boolean historyOrder = true;
+    private boolean rerun;
+    private boolean quiet;
+    private boolean verbose;
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Parse the arguments and grade
+     *
+     * @return the exit code
+     */
+    public static int run(String[] args, PrintStream out, PrintStream err) {
+        GraderCli cli = new GraderCli();
+        try {
+            if (!cli.parse(args)) {
+                out.println(USAGE);
+                return EXIT_ALL_PASSED;
+            }
+        } catch (IllegalArgumentException e) {
+            err.println("Error: " + e.getMessage());
+            err.println(USAGE);
+            return EXIT_USAGE;
+        }
+
+        try {
+            return cli.grade(out, err);
+        } catch (RuntimeException e) {
+            err.println("Error: grading failed: " + e);
+            return EXIT_ERROR;
+        }
+    }
+
+    // ---------------------- Arguments ----------------------
+
+    /**
+     * @return false if only help was asked for
+     */
+    private boolean parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "-h":
+                case "--help": return false;
+                case "--root": root = new File(value(args, ++i, arg)); break;
+                case "--suite": suiteNames.add(value(args, ++i, arg)); break;
+                case "--all": allSuites = true; break;
+                case "--suites-dir": suitesDir = Paths.get(value(args, ++i, arg)); break;
+                case "--parallelism": parallelism = intValue(args, ++i, arg); break;
+                case "--mode": executionMode = enumValue(ExecutionMode.class, args, ++i, arg); break;
+                case "--compiler": compileMode = enumValue(CompileMode.class, args, ++i, arg); break;
+                case "--worker": workerNodes.add(address(value(args, ++i, arg))); break;
+                case "--worker-token": workerToken = value(args, ++i, arg); break;
+                case "--timeout": timeoutMillis = (long) intValue(args, ++i, arg); break;
+                case "--comparator": comparator = OutputComparator.forName(value(args, ++i, arg)); break;
+                case "--heap": heapMb = intValue(args, ++i, arg); break;
+                case "--stack": stackKb = intValue(args, ++i, arg); break;
+                case "--max-output": maxOutputBytes = (long) intValue(args, ++i, arg); break;
+                case "--max-processes": maxChildProcesses = intValue(args, ++i, arg); break;
+                case "--early-exit": earlyExit = true; break;
+                case "--fail-fast": failFast = true; break;
+                case "--no-history-order": historyOrder = false; break;
+                case "--rerun": rerun = true; break;
+                case "--quiet": quiet = true; break;
+                case "--verbose": verbose = true; break;
+                default: throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        if (root == null) {
+            throw new IllegalArgumentException("--root is required");
+        }
+        if (suiteNames.isEmpty() && !allSuites) {
+            throw new IllegalArgumentException("Give at least one --suite, or --all");
+        }
+        if (!workerNodes.isEmpty() && (workerToken == null || workerToken.isEmpty())) {
+            throw new IllegalArgumentException("--worker needs --worker-token or " + WorkerNode.TOKEN_ENV);
+        }
+        if (quiet && verbose) {
+            throw new IllegalArgumentException("--quiet and --verbose cannot be combined");
+        }
+        return true;
+    }
+
+    private static String value(String[] args, int i, String option) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException(option + " needs a value");
+        }
+        return args[i];
+    }
+
+    private static int intValue(String[] args, int i, String option) {
+        String v = value(args, i, option);
+        try {
+            return Integer.parseInt(v);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(option + " needs a number: " + v);
+        }
+    }
+
+    private static InetSocketAddress address(String hostPort) {
+        int colon = hostPort.lastIndexOf(':');
+        try {
+            if (colon > 0) {
+                return new InetSocketAddress(hostPort.substring(0, colon),
+                        Integer.parseInt(hostPort.substring(colon + 1)));
+            }
+        } catch (IllegalArgumentException e) {
+            // falls through to the error below
+        }
+        throw new IllegalArgumentException("--worker needs host:port: " + hostPort);
+    }
+
+    private static <E extends Enum<E>> E enumValue(Class<E> type, String[] args, int i, String option) {
+        String v = value(args, i, option);
+        try {
+            return Enum.valueOf(type, v.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid value for " + option + ": " + v);
+        }
+    }
+
+    // ---------------------- Grading ----------------------
+
+    private int grade(PrintStream out, PrintStream err) {
+        if (!root.isDirectory()) {
+            err.println("Error: root folder not found: " + root);
+            return EXIT_NOT_RUN;
+        }
+
+        // Read-only use of the store: suites are registered with a store-less coordinator
+        Coordinator coordinator = new Coordinator(null);
+        ListOfTestSuites stored = new SuiteStore(suitesDir).loadAll();
+        for (TestSuit suite : stored.getAllSuites()) {
+            coordinator.getListOfTestSuites().setSuite(suite);
+        }
+        List<String> names = allSuites ? stored.getSuiteNames() : suiteNames;
+        if (names.isEmpty()) {
+            err.println("Error: no suites in " + suitesDir);
+            return EXIT_NOT_RUN;
+        }
+
+        try {
+            configure(coordinator);
+        } catch (IllegalArgumentException e) {
+            err.println("Error: " + e.getMessage());
+            return EXIT_USAGE;
+        }
+        coordinator.addListener(event -> print(event, out));
+
+        int exit = EXIT_ALL_PASSED;
+        for (String name : names) {
+            TestSuit suite = coordinator.getListOfTestSuites().getSuite(name);
+            if (suite == null) {
+                err.println("Error: suite not found in " + suitesDir + ": " + name);
+                exit = Math.max(exit, EXIT_NOT_RUN);
+                continue;
+            }
+            try {
+                applyOverrides(suite);
+            } catch (IllegalArgumentException e) {
+                err.println("Error: " + e.getMessage());
+                return EXIT_USAGE;
+            }
+
+            if (!coordinator.runSuite(root, name)) {
+                err.println("Error: suite " + name + " was not run (no test cases or no programs)");
+                exit = Math.max(exit, EXIT_NOT_RUN);
+                continue;
+            }
+            exit = Math.max(exit, summarize(suite, out, err));
+        }
+        return exit;
+    }
+
+    private void configure(Coordinator coordinator) {
+        if (parallelism != null) coordinator.setParallelism(parallelism);
+        coordinator.setExecutionMode(executionMode);
+        coordinator.setCompileMode(compileMode);
+        coordinator.setEarlyExitOnDivergence(earlyExit);
+        coordinator.setStopAfterFirstFailure(failFast);
+        coordinator.setHistoryScheduling(historyOrder);
+        coordinator.setForceFullRerun(rerun);
+        coordinator.setWorkerNodes(workerNodes);
+        coordinator.setWorkerToken(workerToken);
+    }
+
+    private void applyOverrides(TestSuit suite) {
+        if (timeoutMillis != null) suite.setTimeoutMillis(timeoutMillis);
+        if (comparator != null) suite.setComparator(comparator);
+
+        ResourceLimits limits = suite.getResourceLimits();
+        if (heapMb != null) limits = limits.withMaxHeapMb(heapMb);
+        if (stackKb != null) limits = limits.withMaxStackKb(stackKb);
+        if (maxOutputBytes != null) limits = limits.withMaxOutputBytes(maxOutputBytes);
+        if (maxChildProcesses != null) limits = limits.withMaxChildProcesses(maxChildProcesses);
+        suite.setResourceLimits(limits);
+    }
+
+    private void print(GradingEvent event, PrintStream out) {
+        if (quiet) {
+            if (event.getType() == GradingEvent.Type.PROGRAM_SUMMARY) {
+                out.println(event.getProgramName() + ": " + (event.isCompiled()
+                        ? event.getPassed() + "/" + (event.getPassed() + event.getFailed()) + " passed"
+                        : "compilation failed"));
+            }
+            return;
+        }
+        if (verbose && event.getType() == GradingEvent.Type.TEST_VERDICT) {
+            out.println("  " + event.getProgramName() + " test #" + (event.getTestIndex() + 1)
+                    + ": " + event.getVerdict());
+        }
+        if (event.getText() != null) {
+            out.print(event.getText());
+            out.flush();
+        }
+    }
+
+    /**
+     * Report where the results went and turn the suite's outcome into an exit code
+     */
+    private int summarize(TestSuit suite, PrintStream out, PrintStream err) {
+        Path resultFile = suite.getLastResultFile();
+        if (resultFile == null || !Files.exists(resultFile)) {
+            err.println("Error: results of " + suite.getName() + " were not saved");
+            return EXIT_ERROR;
+        }
+        out.println("Results: " + resultFile.toAbsolutePath());
+
+        for (Map.Entry<String, TestSuit.ProgramResult> e : suite.getProgramResults().entrySet()) {
+            TestSuit.ProgramResult pr = e.getValue();
+            if (!pr.compiled || pr.failed > 0) {
+                return EXIT_TESTS_FAILED;
+            }
+        }
+        return EXIT_ALL_PASSED;
+    }
+}
@@ -0,0 +1,328 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coordinator side of distributed grading: a connection to each {@link WorkerNode} and one queue of
+ * {@link RemoteJob}s they all take from, each node up to its number of slots at a time.
+ *
+ * Protocol over one TCP connection per node:
+ *   coordinator:  int MAGIC, UTF token
+ *   node hello:   int MAGIC, int slots (0: the token was rejected, and the node hangs up)
+ *   coordinator:  byte JOB, long id, long length, {@link RemoteJob} frame
+ *   node:         byte RESULT, long id, {@link RemoteJob.Result} frame  |  byte HEARTBEAT
+ * Jobs are packaged before they are sent, so a job that cannot be read here, or that the node
+ * cannot unpack, fails on its own: the connection and the other jobs on it carry on. A result can
+ * say the node failed on the job; only that job's future fails then.
+ * A node that drops the connection or stays silent for too long is given up on, and the jobs it
+ * was holding go back to the front of the queue for the remaining nodes. A job that outlives
+ * {@link #MAX_ATTEMPTS} nodes, or that is left when no node is alive, fails its future.
+ */
+public class GradingCluster implements AutoCloseable {
+    static final int MAGIC = 0x47524431; // "GRD1"
+    static final byte JOB = 1;
+    static final byte RESULT = 2;
+    static final byte HEARTBEAT = 3;
+    static final long HEARTBEAT_MILLIS = 1000;
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+    private static final int SILENCE_TIMEOUT_MILLIS = 10_000; // ten missed heartbeats
+    private static final long POLL_MILLIS = 200;
+    static final int MAX_ATTEMPTS = 3;
+
+    private final LinkedBlockingDeque<Pending> queue = new LinkedBlockingDeque<>();
+    private final List<Node> nodes = new ArrayList<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final String token;
+    private final GradingListener sink;
+    private volatile boolean closed;
+
+    /**
+     * Connect to every node; unreachable ones, and those that reject the token, are reported
+     * through the sink and left out
+     */
+    public GradingCluster(List<InetSocketAddress> addresses, String token, GradingListener sink) {
+        this.token = token;
+        this.sink = sink;
+        for (InetSocketAddress address : addresses) {
+            try {
+                Node node = new Node(address);
+                nodes.add(node);
+                node.start();
+            } catch (IOException e) {
+                sink.onEvent(GradingEvent.message("  ⚠ Worker node " + address + " unreachable: " + e.getMessage() + "\n"));
+            }
+        }
+    }
+
+    public synchronized int getLiveNodeCount() {
+        int live = 0;
+        for (Node node : nodes) {
+            if (!node.dead) live++;
+        }
+        return live;
+    }
+
+    /**
+     * Jobs the live nodes can work on at the same time
+     */
+    public synchronized int getSlots() {
+        int slots = 0;
+        for (Node node : nodes) {
+            if (!node.dead) slots += node.slotCount;
+        }
+        return slots;
+    }
+
+    /**
+     * Queue a job for the next free node slot
+     */
+    public CompletableFuture<RemoteJob.Result> submit(RemoteJob job) {
+        Pending pending = new Pending(nextId.incrementAndGet(), job);
+        requeue(pending, false);
+        return pending.future;
+    }
+
+    /**
+     * Put a job (back) in the queue, or fail it if no node is left to take it
+     */
+    private synchronized void requeue(Pending pending, boolean first) {
+        if (closed || getLiveNodeCount() == 0) {
+            pending.future.completeExceptionally(new IOException("No worker node left"));
+        } else if (first) {
+            queue.addFirst(pending);
+        } else {
+            queue.addLast(pending);
+        }
+    }
+
+    /**
+     * Give up on a node: requeue what it was holding, and fail everything if it was the last one
+     */
+    private void lost(Node node, Exception cause) {
+        List<Pending> orphans;
+        synchronized (node) {
+            if (node.dead) return;
+            node.dead = true;
+            orphans = new ArrayList<>(node.inFlight.values());
+            node.inFlight.clear();
+        }
+        node.closeSocket();
+        if (closed) {
+            orphans.forEach(p -> p.future.completeExceptionally(new IOException("Cluster closed")));
+            return;
+        }
+
+        sink.onEvent(GradingEvent.message("  ⚠ Worker node " + node.address + " lost ("
+                + (cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName())
+                + "), re-queueing " + orphans.size() + " job(s)\n"));
+        synchronized (this) {
+            for (Pending p : orphans) {
+                if (++p.attempts >= MAX_ATTEMPTS) {
+                    p.future.completeExceptionally(new IOException(
+                            "Gave up after " + p.attempts + " worker nodes failed on " + p.job.program.getName()));
+                } else {
+                    requeue(p, true);
+                }
+            }
+            if (getLiveNodeCount() == 0) {
+                Pending p;
+                while ((p = queue.pollFirst()) != null) {
+                    p.future.completeExceptionally(new IOException("No worker node left"));
+                }
+            }
+        }
+    }
+
+    /**
+     * Disconnect from every node; jobs not answered yet fail
+     */
+    @Override
+    public void close() {
+        List<Node> all;
+        synchronized (this) {
+            closed = true;
+            all = new ArrayList<>(nodes);
+        }
+        for (Node node : all) {
+            lost(node, new IOException("Cluster closed"));
+        }
+        Pending p;
+        while ((p = queue.pollFirst()) != null) {
+            p.future.completeExceptionally(new IOException("Cluster closed"));
+        }
+    }
+
+    private static class Pending {
+        final long id;
+        final RemoteJob job;
+        final CompletableFuture<RemoteJob.Result> future = new CompletableFuture<>();
+        int attempts; // nodes that died while holding this job
+
+        Pending(long id, RemoteJob job) {
+            this.id = id;
+            this.job = job;
+        }
+    }
+
+    /**
+     * One worker node: a sender thread that feeds it jobs while it has free slots, and a reader
+     * thread that completes them and watches for heartbeats
+     */
+    private class Node {
+        final InetSocketAddress address;
+        final Socket socket;
+        final DataOutputStream to;
+        final DataInputStream from;
+        final int slotCount;
+        final Semaphore slots;
+        final Map<Long, Pending> inFlight = new HashMap<>(); // guarded by this
+        volatile boolean dead;
+
+        Node(InetSocketAddress address) throws IOException {
+            this.address = address;
+            this.socket = new Socket();
+            try {
+                socket.connect(address, CONNECT_TIMEOUT_MILLIS);
+                socket.setSoTimeout(SILENCE_TIMEOUT_MILLIS);
+                socket.setTcpNoDelay(true);
+                this.to = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                this.from = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                to.writeInt(MAGIC);
+                to.writeUTF(token);
+                to.flush();
+                if (from.readInt() != MAGIC) {
+                    throw new IOException("not a worker node");
+                }
+                this.slotCount = from.readInt();
+                if (slotCount < 1) {
+                    throw new IOException("token rejected");
+                }
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+            this.slots = new Semaphore(slotCount);
+        }
+
+        void start() {
+            daemon(this::send, "cluster-send-" + address).start();
+            daemon(this::receive, "cluster-recv-" + address).start();
+        }
+
+        private Thread daemon(Runnable r, String name) {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        }
+
+        private void send() {
+            try {
+                while (!dead && !closed) {
+                    if (!slots.tryAcquire(POLL_MILLIS, TimeUnit.MILLISECONDS)) continue;
+                    Pending p = queue.pollFirst(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (p == null) {
+                        slots.release();
+                        continue;
+                    }
+                    Path frame;
+                    try {
+                        frame = spool(p.job);
+                    } catch (IOException e) {
+                        // A problem with this job, e.g. an unreadable test file; the node is fine
+                        slots.release();
+                        p.future.completeExceptionally(new IOException(
+                                "Could not package " + p.job.program.getName() + ": " + e.getMessage(), e));
+                        continue;
+                    }
+                    try {
+                        synchronized (this) {
+                            if (dead) {
+                                requeue(p, true);
+                                return;
+                            }
+                            inFlight.put(p.id, p);
+                        }
+                        to.writeByte(JOB);
+                        to.writeLong(p.id);
+                        to.writeLong(Files.size(frame));
+                        Files.copy(frame, to);
+                        to.flush();
+                    } finally {
+                        Files.deleteIfExists(frame);
+                    }
+                }
+            } catch (IOException e) {
+                lost(this, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void receive() {
+            try {
+                while (true) {
+                    byte type = from.readByte();
+                    if (type == HEARTBEAT) continue;
+                    if (type != RESULT) {
+                        throw new IOException("unexpected frame type " + type);
+                    }
+                    long id = from.readLong();
+                    RemoteJob.Result result = RemoteJob.Result.readFrom(from);
+                    Pending p;
+                    synchronized (this) {
+                        p = inFlight.remove(id);
+                    }
+                    slots.release();
+                    if (p == null) continue;
+                    if (result.error != null) {
+                        p.future.completeExceptionally(new IOException(
+                                "Worker node " + address + " failed on " + p.job.program.getName() + ": " + result.error));
+                    } else {
+                        p.future.complete(result);
+                    }
+                }
+            } catch (IOException e) {
+                lost(this, e);
+            }
+        }
+
+        /**
+         * Write a job's frame to a temporary file, so its length is known and reading it cannot
+         * fail half-way through sending. A file rather than memory, as test data can be large.
+         */
+        private Path spool(RemoteJob job) throws IOException {
+            Path frame = Files.createTempFile("grader-job", ".frame");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(frame)))) {
+                job.writeTo(out);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(frame);
+                throw e;
+            }
+            return frame;
+        }
+
+        void closeSocket() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Already broken
+            }
+        }
+    }
+}
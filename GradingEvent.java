@@ -0,0 +1,114 @@
+/**
+ * A single progress notification from {@link Coordinator}.
+ */
+public class GradingEvent {
+
+    public enum Type {
+        /** Free-form log line(s) about the run as a whole */
+        MESSAGE,
+        /** A student folder was scanned; program is null if no main file was found */
+        DISCOVERY,
+        COMPILE_START,
+        COMPILE_END,
+        /** One (program, test case) pair has a verdict */
+        TEST_VERDICT,
+        /** All test cases of one program are done */
+        PROGRAM_SUMMARY
+    }
+
+    private final Type type;
+    private final String programName;
+    private final String text;
+    private final int testIndex;
+    private final Verdict verdict;
+    private final boolean compiled;
+    private final int passed;
+    private final int failed;
+    private final long millis;
+
+    private GradingEvent(Type type, String programName, String text, int testIndex, Verdict verdict,
+                         boolean compiled, int passed, int failed, long millis) {
+        this.type = type;
+        this.programName = programName;
+        this.text = text;
+        this.testIndex = testIndex;
+        this.verdict = verdict;
+        this.compiled = compiled;
+        this.passed = passed;
+        this.failed = failed;
+        this.millis = millis;
+    }
+
+    public static GradingEvent message(String text) {
+        return new GradingEvent(Type.MESSAGE, null, text, -1, null, false, 0, 0, 0);
+    }
+
+    public static GradingEvent discovery(String folderName, boolean found, String text) {
+        return new GradingEvent(Type.DISCOVERY, folderName, text, -1, null, found, 0, 0, 0);
+    }
+
+    public static GradingEvent compileStart(String programName) {
+        return new GradingEvent(Type.COMPILE_START, programName, null, -1, null, false, 0, 0, 0);
+    }
+
+    public static GradingEvent compileEnd(String programName, boolean compiled, long millis) {
+        return new GradingEvent(Type.COMPILE_END, programName, null, -1, null, compiled, 0, 0, millis);
+    }
+
+    public static GradingEvent testVerdict(String programName, int testIndex, Verdict verdict) {
+        return new GradingEvent(Type.TEST_VERDICT, programName, null, testIndex, verdict, true, 0, 0, 0);
+    }
+
+    /**
+     * @param text the program's complete log block (compiler output, notes and result line)
+     */
+    public static GradingEvent programSummary(String programName, boolean compiled, int passed, int failed, String text) {
+        return new GradingEvent(Type.PROGRAM_SUMMARY, programName, text, -1, null, compiled, passed, failed, 0);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getProgramName() {
+        return programName;
+    }
+
+    /**
+     * Text for the human-readable log, or null for events that only carry data
+     */
+    public String getText() {
+        return text;
+    }
+
+    public int getTestIndex() {
+        return testIndex;
+    }
+
+    public Verdict getVerdict() {
+        return verdict;
+    }
+
+    public boolean isCompiled() {
+        return compiled;
+    }
+
+    public int getPassed() {
+        return passed;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    @Override
+    public String toString() {
+        return "GradingEvent{" + type + (programName != null ? ", " + programName : "")
+                + (testIndex >= 0 ? ", test " + (testIndex + 1) : "")
+                + (verdict != null ? ", " + verdict : "") + "}";
+    }
+}
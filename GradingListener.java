@@ -0,0 +1,10 @@
+/**
+ * Receives progress events while a suite is being executed.
+ *
+ * Events arrive on grader worker threads, possibly several at once, so
+ * implementations must be thread-safe and should return quickly.
+ */
+@FunctionalInterface
+public interface GradingListener {
+    void onEvent(GradingEvent event);
+}
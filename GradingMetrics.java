@@ -0,0 +1,325 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms of one suite run, filled in by {@link Coordinator} while it grades
+ * and saved next to the result file as &lt;suite&gt;_&lt;timestamp&gt;.metrics.json and .metrics.prom
+ * (Prometheus text format, e.g. for the node exporter's textfile collector).
+ *
+ * Recording is lock-free, so grading threads can record concurrently. Percentiles are read from
+ * log-linear buckets and are accurate to within 1/8 of the value.
+ */
+public class GradingMetrics {
+    /** Records nothing; used for compiles and runs outside a suite run */
+    public static final GradingMetrics NONE = new GradingMetrics(null, false);
+
+    /**
+     * Timed phases of a suite run
+     */
+    public enum Phase {
+        DISCOVERY("discovery"),         // finding the programs under the root folder
+        COMPILE("compile"),             // per program, including compile cache hits and remote compiles
+        SPAWN("process_spawn"),         // starting a program's JVM for one test run
+        TEST_RUN("test_run"),           // per test run, wall time including the spawn
+        COMPARE("compare"),             // comparing a finished run's output; streamed comparisons are part of the run
+        REPORT_WRITE("report_write");   // result file, report and history entry
+
+        private final String name;
+
+        Phase(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    /**
+     * Events of a suite run that are counted, not timed
+     */
+    public enum Counter {
+        PROGRAMS("programs_discovered"),
+        COMPILE_FAILURES("compile_failures"),
+        COMPILE_CACHE_HITS("compile_cache_hits"),
+        RESULT_CACHE_HITS("result_cache_hits"),
+        RUN_ERRORS("run_errors"),         // runs that could not be carried out at all
+        TESTS_SKIPPED("tests_skipped"),
+        REMOTE_JOBS("remote_jobs");       // programs graded on a worker node
+
+        private final String name;
+
+        Counter(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private final String suiteName;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private final long startNanos = System.nanoTime();
+    private volatile long durationNanos = -1;
+    private final Map<Phase, Histogram> phases = new EnumMap<>(Phase.class);
+    private final Map<Counter, LongAdder> counters = new EnumMap<>(Counter.class);
+    private final boolean recording;
+
+    /**
+     * @param suiteName label of every metric; null outside a suite run
+     */
+    public GradingMetrics(String suiteName) {
+        this(suiteName, true);
+    }
+
+    private GradingMetrics(String suiteName, boolean recording) {
+        this.suiteName = suiteName;
+        this.recording = recording;
+        for (Phase phase : Phase.values()) phases.put(phase, new Histogram());
+        for (Counter counter : Counter.values()) counters.put(counter, new LongAdder());
+    }
+
+    public String getSuiteName() {
+        return suiteName;
+    }
+
+    /**
+     * Wall time of the run, or -1 while it is still going
+     */
+    public long getDurationMillis() {
+        long nanos = durationNanos;
+        return nanos < 0 ? -1 : nanos / 1_000_000;
+    }
+
+    // ---------------------- Recording ----------------------
+
+    /**
+     * Record a phase that started at startNanos (a {@link System#nanoTime()} reading) and ends now
+     */
+    public void stop(Phase phase, long startNanos) {
+        record(phase, System.nanoTime() - startNanos);
+    }
+
+    public void record(Phase phase, long nanos) {
+        if (recording) phases.get(phase).record(nanos);
+    }
+
+    public void increment(Counter counter) {
+        if (recording) counters.get(counter).increment();
+    }
+
+    public void add(Counter counter, long n) {
+        if (recording) counters.get(counter).add(n);
+    }
+
+    /**
+     * Mark the run as finished, fixing its duration
+     */
+    void finish() {
+        durationNanos = System.nanoTime() - startNanos;
+    }
+
+    public long getCount(Counter counter) {
+        return counters.get(counter).sum();
+    }
+
+    public Histogram getHistogram(Phase phase) {
+        return phases.get(phase);
+    }
+
+    // ---------------------- Export ----------------------
+
+    /**
+     * Write the JSON and Prometheus files for a result file: S_20240101_120000.jsonl gets
+     * S_20240101_120000.metrics.json and S_20240101_120000.metrics.prom next to it
+     */
+    public void writeFor(Path resultFile) throws IOException {
+        String base = resultFile.getFileName().toString().replaceFirst("\\.jsonl$", "");
+        Path json = resultFile.resolveSibling(base + ".metrics.json");
+        Path prometheus = resultFile.resolveSibling(base + ".metrics.prom");
+        Files.write(json, toJson().getBytes(StandardCharsets.UTF_8));
+        Files.write(prometheus, toPrometheus().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * One JSON object: suite, start, duration, the counters, and per phase its count, total, max
+     * and p50/p95/p99, all in milliseconds
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n  \"suite\": ");
+        ResultWriter.appendString(sb, suiteName);
+        sb.append(",\n  \"startedAt\": ");
+        ResultWriter.appendString(sb, startedAt.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+        sb.append(",\n  \"durationMillis\": ").append(getDurationMillis());
+
+        sb.append(",\n  \"counters\": {");
+        String sep = "\n";
+        for (Counter counter : Counter.values()) {
+            sb.append(sep).append("    \"").append(counter.getName()).append("\": ").append(getCount(counter));
+            sep = ",\n";
+        }
+        sb.append("\n  },\n  \"phases\": {");
+        sep = "\n";
+        for (Phase phase : Phase.values()) {
+            Histogram h = getHistogram(phase);
+            sb.append(sep).append("    \"").append(phase.getName()).append("\": {")
+                    .append("\"count\": ").append(h.getCount())
+                    .append(", \"totalMillis\": ").append(millis(h.getSumNanos()))
+                    .append(", \"maxMillis\": ").append(millis(h.getMaxNanos()))
+                    .append(", \"p50Millis\": ").append(millis(h.percentileNanos(0.50)))
+                    .append(", \"p95Millis\": ").append(millis(h.percentileNanos(0.95)))
+                    .append(", \"p99Millis\": ").append(millis(h.percentileNanos(0.99)))
+                    .append('}');
+            sep = ",\n";
+        }
+        sb.append("\n  }\n}\n");
+        return sb.toString();
+    }
+
+    /**
+     * Prometheus text exposition format: one summary of phase latencies with the 0.5/0.95/0.99
+     * quantiles, the largest latency per phase, the run duration and one counter per event
+     */
+    public String toPrometheus() {
+        String suite = "suite=\"" + escapeLabel(suiteName == null ? "" : suiteName) + "\"";
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("# HELP grader_phase_duration_seconds Latency of each grading phase.\n");
+        sb.append("# TYPE grader_phase_duration_seconds summary\n");
+        for (Phase phase : Phase.values()) {
+            Histogram h = getHistogram(phase);
+            String labels = suite + ",phase=\"" + phase.getName() + "\"";
+            for (double q : new double[] {0.5, 0.95, 0.99}) {
+                sb.append("grader_phase_duration_seconds{").append(labels).append(",quantile=\"").append(q)
+                        .append("\"} ").append(seconds(h.percentileNanos(q))).append('\n');
+            }
+            sb.append("grader_phase_duration_seconds_sum{").append(labels).append("} ")
+                    .append(seconds(h.getSumNanos())).append('\n');
+            sb.append("grader_phase_duration_seconds_count{").append(labels).append("} ")
+                    .append(h.getCount()).append('\n');
+        }
+
+        sb.append("# HELP grader_phase_duration_max_seconds Slowest occurrence of each grading phase.\n");
+        sb.append("# TYPE grader_phase_duration_max_seconds gauge\n");
+        for (Phase phase : Phase.values()) {
+            sb.append("grader_phase_duration_max_seconds{").append(suite).append(",phase=\"").append(phase.getName())
+                    .append("\"} ").append(seconds(getHistogram(phase).getMaxNanos())).append('\n');
+        }
+
+        sb.append("# HELP grader_run_duration_seconds Wall time of the suite run.\n");
+        sb.append("# TYPE grader_run_duration_seconds gauge\n");
+        sb.append("grader_run_duration_seconds{").append(suite).append("} ")
+                .append(durationNanos < 0 ? "NaN" : seconds(durationNanos)).append('\n');
+
+        for (Counter counter : Counter.values()) {
+            String name = "grader_" + counter.getName() + "_total";
+            sb.append("# TYPE ").append(name).append(" counter\n");
+            sb.append(name).append('{').append(suite).append("} ").append(getCount(counter)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.6f", nanos / 1e9);
+    }
+
+    private static String escapeLabel(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * Latencies in microsecond buckets: exact below 16 µs, then 8 buckets per power of two
+     */
+    public static class Histogram {
+        private static final int LINEAR = 16;
+        private static final int SUB_BUCKETS = 8; // per power of two; must match SUB_BITS
+        private static final int SUB_BITS = 3;
+        private static final int BUCKETS = LINEAR + (63 - 4) * SUB_BUCKETS;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sumNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        public void record(long nanos) {
+            if (nanos < 0) nanos = 0;
+            buckets.incrementAndGet(bucketOf(nanos / 1000));
+            count.increment();
+            sumNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getSumNanos() {
+            return sumNanos.sum();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        /**
+         * The smallest latency at or above a fraction q of all recorded ones, to bucket precision
+         * and never above the maximum; 0 if nothing was recorded
+         */
+        public long percentileNanos(double q) {
+            if (q < 0 || q > 1) {
+                throw new IllegalArgumentException("Percentile must be between 0 and 1: " + q);
+            }
+            long total = 0;
+            long[] snapshot = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                snapshot[i] = buckets.get(i);
+                total += snapshot[i];
+            }
+            if (total == 0) return 0;
+
+            long rank = Math.max(1, (long) Math.ceil(q * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) {
+                    return Math.min(upperMicros(i) * 1000, getMaxNanos());
+                }
+            }
+            return getMaxNanos();
+        }
+
+        private static int bucketOf(long micros) {
+            if (micros < LINEAR) return (int) micros;
+            int exponent = 63 - Long.numberOfLeadingZeros(micros); // >= 4
+            int sub = (int) (micros >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return LINEAR + (exponent - 4) * SUB_BUCKETS + sub;
+        }
+
+        /**
+         * Largest value that falls in bucket i
+         */
+        private static long upperMicros(int i) {
+            if (i < LINEAR) return i;
+            int exponent = (i - LINEAR) / SUB_BUCKETS + 4;
+            int sub = (i - LINEAR) % SUB_BUCKETS;
+            long width = 1L << (exponent - SUB_BITS);
+            return (SUB_BUCKETS + sub) * width + width - 1;
+        }
+    }
+}
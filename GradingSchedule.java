@@ -0,0 +1,201 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Execution order for a suite run, learned from the suite's recorded runs in the
+ * {@link ResultHistory} index.
+ *
+ * Programs that took longest last time start first, so the slowest submission is not picked up
+ * last and left running alone at the end of the run. Each program's tests run those most likely
+ * to fail first: the ones it failed last time, then the ones that fail for the most programs
+ * (the tests that tell submissions apart), then the quickest. A test is recognised across runs
+ * by its input and expected output, so reordering or editing a suite keeps its history.
+ */
+public class GradingSchedule {
+    /** Runs read by {@link Coordinator} to build a schedule */
+    public static final int DEFAULT_RUNS = 3;
+
+    // Tests without history sort between those that always fail and those that never do
+    private static final double UNKNOWN_FAILURE_RATE = 0.5;
+
+    private final int runCount;
+    private final String[] keys; // of the tests being scheduled
+    private final Map<String, Observed> byTest = new HashMap<>();                 // test key -> all programs
+    private final Map<String, Map<String, Observed>> byProgram = new HashMap<>(); // program -> test key -> it
+
+    private GradingSchedule(int runCount, String[] keys) {
+        this.runCount = runCount;
+        this.keys = keys;
+    }
+
+    /**
+     * No history: discovery order and insertion order
+     */
+    public static GradingSchedule none(int testCount) {
+        return new GradingSchedule(0, new String[testCount]);
+    }
+
+    /**
+     * Learn from the last maxRuns recorded runs of a suite how to order a run of the given tests;
+     * runs recorded without per-test outcomes are skipped
+     */
+    public static GradingSchedule fromHistory(ResultHistory history, String suiteName, List<TestCase> tests,
+                                              int maxRuns) {
+        List<List<ResultHistory.TestOutcome>> outcomes = new ArrayList<>();
+        List<String> programs = new ArrayList<>();
+        int used = 0;
+        try {
+            for (ResultHistory.Run run : history.getLastRuns(suiteName, maxRuns)) { // oldest first
+                boolean any = false;
+                for (ResultHistory.Entry entry : run.programs.values()) {
+                    List<ResultHistory.TestOutcome> o = entry.getTestOutcomes();
+                    if (o.isEmpty()) continue;
+                    programs.add(entry.program);
+                    outcomes.add(o);
+                    any = true;
+                }
+                if (any) used++;
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Warning: Could not read result history, running in the usual order: " + e.getMessage());
+            return none(tests.size());
+        }
+
+        if (used == 0) return none(tests.size());
+        String[] keys = new String[tests.size()];
+        for (int t = 0; t < keys.length; t++) {
+            keys[t] = ResultHistory.testKey(tests.get(t).getInput(), tests.get(t).getExpectedOutput());
+        }
+        GradingSchedule schedule = new GradingSchedule(used, keys);
+        for (int i = 0; i < programs.size(); i++) { // oldest first, so the last outcome seen is the latest
+            schedule.learn(programs.get(i), outcomes.get(i));
+        }
+        return schedule;
+    }
+
+    private void learn(String programName, List<ResultHistory.TestOutcome> outcomes) {
+        Map<String, Observed> program = byProgram.computeIfAbsent(programName, k -> new HashMap<>());
+        for (ResultHistory.TestOutcome o : outcomes) {
+            program.computeIfAbsent(o.key, k -> new Observed()).add(o.passed, o.millis);
+            byTest.computeIfAbsent(o.key, k -> new Observed()).add(o.passed, o.millis);
+        }
+    }
+
+    /**
+     * Number of earlier runs this schedule learned from; 0 means the usual order
+     */
+    public int getRunCount() {
+        return runCount;
+    }
+
+    // ---------------------- Ordering ----------------------
+
+    /**
+     * Indexes of the programs, longest expected run first; programs never seen before count as
+     * average, and ties keep discovery order
+     */
+    public List<Integer> programOrder(List<String> programNames) {
+        List<Integer> order = identity(programNames.size());
+        if (runCount == 0) return order;
+
+        long[] estimate = new long[programNames.size()];
+        long known = 0;
+        int knownCount = 0;
+        for (int p = 0; p < estimate.length; p++) {
+            estimate[p] = expectedMillis(programNames.get(p));
+            if (estimate[p] >= 0) {
+                known += estimate[p];
+                knownCount++;
+            }
+        }
+        long average = knownCount == 0 ? 0 : known / knownCount;
+        for (int p = 0; p < estimate.length; p++) {
+            if (estimate[p] < 0) estimate[p] = average;
+        }
+
+        order.sort(Comparator.comparingLong((Integer p) -> estimate[p]).reversed());
+        return order;
+    }
+
+    /**
+     * Expected wall time of all tests of a program, or -1 if it was never run. Tests the program
+     * has no time for count with their average over all programs.
+     */
+    private long expectedMillis(String program) {
+        Map<String, Observed> seen = byProgram.get(program);
+        if (seen == null) return -1;
+        long total = 0;
+        for (String key : keys) {
+            Observed o = seen.get(key);
+            if (o == null || o.meanMillis() < 0) o = byTest.get(key);
+            if (o != null && o.meanMillis() >= 0) total += o.meanMillis();
+        }
+        return total;
+    }
+
+    /**
+     * Indexes of a program's tests: failed by this program last time, then highest failure rate
+     * over all programs, then quickest; ties keep insertion order
+     */
+    public List<Integer> testOrder(String program) {
+        List<Integer> order = identity(keys.length);
+        if (runCount == 0) return order;
+
+        Map<String, Observed> seen = byProgram.getOrDefault(program, Map.of());
+        boolean[] failedLast = new boolean[keys.length];
+        double[] failureRate = new double[keys.length];
+        long[] millis = new long[keys.length];
+        for (int t = 0; t < keys.length; t++) {
+            Observed mine = seen.get(keys[t]);
+            Observed all = byTest.get(keys[t]);
+            failedLast[t] = mine != null && mine.failedLast;
+            failureRate[t] = all != null ? all.failureRate() : UNKNOWN_FAILURE_RATE;
+            millis[t] = mine != null && mine.meanMillis() >= 0 ? mine.meanMillis()
+                    : all != null ? Math.max(all.meanMillis(), 0) : 0;
+        }
+
+        order.sort(Comparator.comparing((Integer t) -> !failedLast[t])
+                .thenComparing(Comparator.comparingDouble((Integer t) -> failureRate[t]).reversed())
+                .thenComparingLong(t -> millis[t]));
+        return order;
+    }
+
+    private static List<Integer> identity(int n) {
+        List<Integer> order = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) order.add(i);
+        return order;
+    }
+
+    /**
+     * Recorded outcomes of one test, for one program or for all of them
+     */
+    private static class Observed {
+        int runs;
+        int failures;
+        long timedMillis;
+        int timedRuns;
+        boolean failedLast;
+
+        void add(boolean passed, int millis) {
+            runs++;
+            if (!passed) failures++;
+            if (millis >= 0) {
+                timedMillis += millis;
+                timedRuns++;
+            }
+            failedLast = !passed;
+        }
+
+        double failureRate() {
+            return runs == 0 ? UNKNOWN_FAILURE_RATE : (double) failures / runs;
+        }
+
+        long meanMillis() {
+            return timedRuns == 0 ? -1 : timedMillis / timedRuns;
+        }
+    }
+}
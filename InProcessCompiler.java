@@ -0,0 +1,108 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+/**
+ * Compiles submissions with the JDK's compiler inside the grader JVM, which avoids
+ * paying JVM startup and compiler warm-up for every submission.
+ */
+public class InProcessCompiler {
+    private final JavaCompiler compiler;
+
+    // A file manager is not thread-safe, so each compile borrows one. The pool grows no larger
+    // than the most compiles that ran at once; Coordinator closes it after every suite run.
+    private final Queue<StandardJavaFileManager> idleFileManagers = new ConcurrentLinkedQueue<>();
+
+    public InProcessCompiler() {
+        this.compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("No system Java compiler available; run the grader on a JDK, not a JRE.");
+        }
+    }
+
+    /**
+     * Close the file managers kept for reuse, and the jar and jrt handles they hold open.
+     * Later compiles open new ones.
+     */
+    public void closeFileManagers() {
+        StandardJavaFileManager fileManager;
+        while ((fileManager = idleFileManagers.poll()) != null) {
+            try {
+                fileManager.close();
+            } catch (IOException ignored) {
+                // Nothing left to release
+            }
+        }
+    }
+
+    /**
+     * Compile the program's main file, resolving other classes from its project directory.
+     * Class files are written next to their sources, exactly like the javac process does.
+     *
+     * @return whether the program compiled, or null if the compiler itself failed
+     */
+    public Boolean compile(Program program, StringBuilder log) {
+        StandardJavaFileManager fileManager = idleFileManagers.poll();
+        if (fileManager == null) {
+            fileManager = compiler.getStandardFileManager(null, Locale.getDefault(), null);
+        }
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        StringWriter out = new StringWriter();
+
+        try {
+            fileManager.setLocation(StandardLocation.SOURCE_PATH,
+                    Collections.singletonList(program.getProjectDirectory()));
+            // Not the grader's own class path: like the javac process, resolve only the submission's sources
+            fileManager.setLocation(StandardLocation.CLASS_PATH, Collections.emptyList());
+            Iterable<? extends JavaFileObject> units =
+                    fileManager.getJavaFileObjects(program.getJavaFile());
+
+            boolean ok = compiler.getTask(out, fileManager, diagnostics, null, null, units).call();
+
+            for (Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+                appendLines(log, format(d));
+            }
+            if (out.getBuffer().length() > 0) {
+                appendLines(log, out.toString());
+            }
+            return ok;
+        } catch (Exception e) {
+            log.append("Error invoking in-process compiler: ").append(e.getMessage()).append("\n");
+            return null;
+        } finally {
+            try {
+                fileManager.flush();
+            } catch (Exception ignored) {
+                // Nothing buffered that matters for the next submission
+            }
+            idleFileManagers.offer(fileManager);
+        }
+    }
+
+    private static void appendLines(StringBuilder log, String text) {
+        for (String line : text.split("\\R")) {
+            log.append("    [javac] ").append(line).append("\n");
+        }
+    }
+
+    private static String format(Diagnostic<? extends JavaFileObject> d) {
+        StringBuilder sb = new StringBuilder();
+        if (d.getSource() != null) {
+            sb.append(new File(d.getSource().toUri()).getName()).append(":").append(d.getLineNumber()).append(": ");
+        }
+        sb.append(d.getKind().toString().toLowerCase(Locale.ROOT)).append(": ")
+          .append(d.getMessage(Locale.getDefault()));
+        return sb.toString();
+    }
+}
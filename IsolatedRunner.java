@@ -0,0 +1,314 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.security.Permission;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a student's main method inside the current JVM. Every invocation gets a fresh
+ * class loader (so static state never leaks between runs), its own System.in/out/err,
+ * and has System.exit trapped instead of taking the whole JVM down.
+ *
+ * Only used inside helper JVMs (worker pool, batch harness), never inside the grader itself.
+ *
+ * This is isolation between runs, not a sandbox: a submission can read and write files, open
+ * sockets and start threads, and one that catches SecurityException (or Throwable) around
+ * System.exit keeps running after it. The exit status is still the one it asked for. Grade
+ * untrusted code in {@link ExecutionMode#PROCESS} mode under OS-level limits.
+ */
+public class IsolatedRunner {
+
+    /**
+     * Result of one invocation of a student main
+     */
+    public static class Outcome {
+        final int exitCode;
+        final boolean timedOut;
+        final boolean clean;     // false if the submission left threads running
+        final boolean truncated;
+        final byte[] stdout;
+        final byte[] stderr;
+
+        Outcome(int exitCode, boolean timedOut, boolean clean, boolean truncated, byte[] stdout, byte[] stderr) {
+            this.exitCode = exitCode;
+            this.timedOut = timedOut;
+            this.clean = clean;
+            this.truncated = truncated;
+            this.stdout = stdout;
+            this.stderr = stderr;
+        }
+
+        /**
+         * Frame: int exitCode, boolean timedOut, boolean clean, boolean truncated,
+         * int length + bytes stdout, int length + bytes stderr
+         */
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(exitCode);
+            out.writeBoolean(timedOut);
+            out.writeBoolean(clean);
+            out.writeBoolean(truncated);
+            out.writeInt(stdout.length);
+            out.write(stdout);
+            out.writeInt(stderr.length);
+            out.write(stderr);
+            out.flush();
+        }
+
+        static Outcome readFrom(DataInputStream in) throws IOException {
+            int exitCode = in.readInt();
+            boolean timedOut = in.readBoolean();
+            boolean clean = in.readBoolean();
+            boolean truncated = in.readBoolean();
+            byte[] stdout = new byte[in.readInt()];
+            in.readFully(stdout);
+            byte[] stderr = new byte[in.readInt()];
+            in.readFully(stderr);
+            return new Outcome(exitCode, timedOut, clean, truncated, stdout, stderr);
+        }
+
+        /**
+         * Convert to the grader's result type
+         */
+        RunResult toRunResult() {
+            java.nio.charset.Charset cs = java.nio.charset.Charset.defaultCharset();
+            if (timedOut) {
+                return RunResult.timeout(new String(stdout, cs), truncated);
+            }
+            return RunResult.completed(new String(stdout, cs), new String(stderr, cs), exitCode, truncated);
+        }
+    }
+
+    private static volatile ThreadGroup trappedGroup;
+    private static volatile Integer trappedExitCode;
+    private static volatile String exitTrapProblem; // "" once helper JVMs were found to trap exit
+
+    /**
+     * Check, once per grader process, that the helper JVMs started with "java" can trap System.exit.
+     * JDK 24 removed the security manager the trap relies on.
+     *
+     * @return null if they can, otherwise why not
+     */
+    public static String exitTrapProblem() {
+        String problem = exitTrapProblem;
+        if (problem == null) {
+            problem = probeExitTrap();
+            exitTrapProblem = problem;
+        }
+        return problem.isEmpty() ? null : problem;
+    }
+
+    private static synchronized String probeExitTrap() {
+        if (exitTrapProblem != null) return exitTrapProblem;
+        try {
+            Process p = new ProcessBuilder("java", "-Djava.security.manager=allow",
+                    "-cp", System.getProperty("java.class.path"), "IsolatedRunner")
+                    .redirectErrorStream(true).start();
+            String output;
+            try (java.io.InputStream in = p.getInputStream()) {
+                output = new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+            }
+            if (!p.waitFor(30, TimeUnit.SECONDS)) {
+                p.destroyForcibly();
+                return ""; // No verdict; let the runs show what is wrong
+            }
+            return p.exitValue() == 0 ? "" : output.isEmpty() ? "exit trap check failed" : output;
+        } catch (IOException e) {
+            return ""; // No java to start; PROCESS mode could not run either
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "";
+        }
+    }
+
+    /**
+     * Exit trap check run by {@link #exitTrapProblem} in a helper JVM: exit status 0 if the trap
+     * can be installed, otherwise 1 with the reason on stdout
+     */
+    public static void main(String[] args) {
+        try {
+            installExitTrap();
+        } catch (IllegalStateException e) {
+            System.out.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Install the System.exit trap. Needs -Djava.security.manager=allow on newer JDKs.
+     *
+     * @throws IllegalStateException if this JVM cannot install a security manager (JDK 24 and later)
+     */
+    public static void installExitTrap() {
+        try {
+            setExitTrap();
+        } catch (UnsupportedOperationException | SecurityException e) {
+            throw new IllegalStateException("Java " + Runtime.version() + " cannot trap System.exit: " + e.getMessage(), e);
+        }
+    }
+
+    @SuppressWarnings("removal")
+    private static void setExitTrap() {
+        System.setSecurityManager(new SecurityManager() {
+            @Override
+            public void checkPermission(Permission perm) {
+                // Everything else is allowed; this manager only intercepts exit
+            }
+
+            @Override
+            public void checkPermission(Permission perm, Object context) {
+            }
+
+            @Override
+            public void checkExit(int status) {
+                ThreadGroup group = trappedGroup;
+                if (group != null && group.parentOf(Thread.currentThread().getThreadGroup())) {
+                    if (trappedExitCode == null) {
+                        trappedExitCode = status;
+                    }
+                    throw new ExitTrappedException(status);
+                }
+            }
+        });
+    }
+
+    /**
+     * Run mainClass from classPathDir with the given stdin, keeping at most maxOutputBytes per stream.
+     * Invocations must not overlap, since System.in/out/err are process-wide.
+     *
+     * @param timeoutMillis how long to wait for main to return, 0 to wait forever. A run that
+     *                      times out leaves its thread behind, so the caller must not reuse the JVM.
+     */
+    public static synchronized Outcome run(String classPathDir, String mainClass, byte[] stdin, int maxOutputBytes,
+                                           long timeoutMillis) throws InterruptedException {
+        BoundedBuffer out = new BoundedBuffer(maxOutputBytes);
+        BoundedBuffer err = new BoundedBuffer(maxOutputBytes);
+        PrintStream studentOut = new PrintStream(out, true);
+        PrintStream studentErr = new PrintStream(err, true);
+
+        PrintStream savedOut = System.out;
+        PrintStream savedErr = System.err;
+        java.io.InputStream savedIn = System.in;
+
+        ThreadGroup group = new ThreadGroup("submission");
+        int[] exitCode = {0};
+        boolean timedOut = false;
+
+        try (URLClassLoader loader = new URLClassLoader(
+                new URL[]{new File(classPathDir).toURI().toURL()}, ClassLoader.getPlatformClassLoader())) {
+            System.setIn(new ByteArrayInputStream(stdin));
+            System.setOut(studentOut);
+            System.setErr(studentErr);
+            trappedExitCode = null;
+            trappedGroup = group;
+
+            Thread main = new Thread(group, () -> exitCode[0] = invokeMain(loader, mainClass, studentErr), "main");
+            main.setContextClassLoader(loader);
+            main.start();
+            main.join(timeoutMillis);
+            timedOut = main.isAlive();
+        } catch (java.io.IOException e) {
+            studentErr.println("Could not load submission: " + e.getMessage());
+            exitCode[0] = 1;
+        } finally {
+            trappedGroup = null;
+            System.setIn(savedIn);
+            System.setOut(savedOut);
+            System.setErr(savedErr);
+        }
+
+        studentOut.flush();
+        studentErr.flush();
+        if (trappedExitCode != null) {
+            exitCode[0] = trappedExitCode;
+        }
+        if (timedOut) {
+            exitCode[0] = -1;
+        }
+        boolean clean = group.activeCount() == 0;
+        return new Outcome(exitCode[0], timedOut, clean, out.truncated || err.truncated,
+                out.toByteArray(), err.toByteArray());
+    }
+
+    private static int invokeMain(ClassLoader loader, String mainClass, PrintStream studentErr) {
+        try {
+            Class<?> c = Class.forName(mainClass, true, loader);
+            Method main = c.getMethod("main", String[].class);
+            main.invoke(null, (Object) new String[0]);
+            return 0;
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ExitTrappedException) {
+                return ((ExitTrappedException) cause).status;
+            }
+            studentErr.print("Exception in thread \"main\" ");
+            cause.printStackTrace(studentErr);
+            return 1;
+        } catch (ExceptionInInitializerError e) {
+            if (e.getCause() instanceof ExitTrappedException) {
+                // System.exit called from a static initializer
+                return ((ExitTrappedException) e.getCause()).status;
+            }
+            studentErr.print("Exception in thread \"main\" ");
+            e.printStackTrace(studentErr);
+            return 1;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            studentErr.println("Error: could not run main class " + mainClass + ": " + e);
+            return 1;
+        }
+    }
+
+    /**
+     * Thrown out of System.exit inside a submission. It is a SecurityException because that is
+     * what checkExit may throw, so a submission that catches those swallows it.
+     */
+    static class ExitTrappedException extends SecurityException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        ExitTrappedException(int status) {
+            super("System.exit(" + status + ") trapped");
+            this.status = status;
+        }
+    }
+
+    /**
+     * Keeps the first maxBytes written and silently drops the rest
+     */
+    private static class BoundedBuffer extends OutputStream {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final int maxBytes;
+        boolean truncated;
+
+        BoundedBuffer(int maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            if (buffer.size() < maxBytes) buffer.write(b);
+            else truncated = true;
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            int room = Math.min(len, maxBytes - buffer.size());
+            if (room > 0) buffer.write(b, off, room);
+            if (room < len) truncated = true;
+        }
+
+        synchronized byte[] toByteArray() {
+            return buffer.toByteArray();
+        }
+    }
+}
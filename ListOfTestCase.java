@@ -1,36 +1,135 @@
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Supplier;
 
+/**
+ * Copy-on-write list of test cases. Every change publishes a new immutable list and bumps the
+ * version, so {@link #asList()} is a consistent snapshot that can be iterated, or indexed by
+ * a running suite, while the UI keeps editing.
+ */
 public class ListOfTestCase {
-    private final List<TestCase> cases;
+    private volatile List<TestCase> cases;    // immutable; null until a lazy list is first used
+    private Supplier<List<TestCase>> loader;  // lazy lists only, dropped once loaded
+    private final int storedSize;
+    private final boolean frozen;
+    private volatile long version;
 
     public ListOfTestCase() {
-        this.cases = new ArrayList<>();
+        this(Collections.emptyList(), null, 0, false);
     }
 
-    public void add(TestCase t) {
-        cases.add(t);
+    private ListOfTestCase(List<TestCase> cases, Supplier<List<TestCase>> loader, int storedSize, boolean frozen) {
+        this.cases = cases;
+        this.loader = loader;
+        this.storedSize = storedSize;
+        this.frozen = frozen;
+        this.version = 0;
     }
 
+    /**
+     * A list whose test cases are only loaded the first time they are used. Until then
+     * {@link #size()} reports storedSize without loading.
+     */
+    public static ListOfTestCase lazy(int storedSize, Supplier<List<TestCase>> loader) {
+        return new ListOfTestCase(null, loader, storedSize, false);
+    }
+
+    /**
+     * Read-only list over the current test cases, e.g. for one suite run
+     */
+    public ListOfTestCase snapshot() {
+        return new ListOfTestCase(cases(), null, 0, true);
+    }
+
+    /**
+     * Whether the test cases are in memory
+     */
+    public boolean isLoaded() {
+        return cases != null;
+    }
+
+    private List<TestCase> cases() {
+        List<TestCase> current = cases;
+        if (current != null) return current;
+        synchronized (this) {
+            if (cases == null) {
+                cases = Collections.unmodifiableList(new ArrayList<>(loader.get()));
+                loader = null;
+            }
+            return cases;
+        }
+    }
+
+    /**
+     * Incremented by every change
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    // ---------------------- Changes (copy on write) ----------------------
+
+    public synchronized void add(TestCase t) {
+        List<TestCase> next = copyForWrite();
+        next.add(t);
+        publish(next);
+    }
+
+    public synchronized void set(int index, TestCase t) {
+        List<TestCase> next = copyForWrite();
+        next.set(index, t);
+        publish(next);
+    }
+
+    public synchronized TestCase remove(int index) {
+        List<TestCase> next = copyForWrite();
+        TestCase removed = next.remove(index);
+        publish(next);
+        return removed;
+    }
+
+    public synchronized void clear() {
+        copyForWrite();
+        publish(new ArrayList<>());
+    }
+
+    private List<TestCase> copyForWrite() {
+        if (frozen) {
+            throw new UnsupportedOperationException("Test case snapshots are read-only");
+        }
+        return new ArrayList<>(cases());
+    }
+
+    private void publish(List<TestCase> next) {
+        cases = Collections.unmodifiableList(next);
+        version++;
+    }
+
+    // ---------------------- Reads ----------------------
+
     public int size() {
-        return cases.size();
+        List<TestCase> current = cases;
+        return current == null ? storedSize : current.size();
     }
 
     public TestCase get(int index) {
-        return cases.get(index);
+        return cases().get(index);
     }
 
+    /**
+     * The test cases as of now; read-only, later changes do not show up in it
+     */
     public List<TestCase> asList() {
-        return cases;
+        return cases();
     }
 
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        for (TestCase tc : cases) {
+        for (TestCase tc : cases()) {
             sb.append(tc.toString()).append(System.lineSeparator());
         }
         return sb.toString();
     }
 }
-
@@ -1,39 +1,46 @@
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Suite registry indexed by name. Lookups are O(1) and lock-free on an immutable map that
+ * every change replaces (suites are added and deleted rarely, looked up all the time), and
+ * the map keeps the order suites were added in.
+ */
 public class ListOfTestSuites {
-    private final List<TestSuit> suites;
+    private volatile Map<String, TestSuit> suites;
 
     public ListOfTestSuites() {
-        this.suites = new ArrayList<>();
+        this.suites = Collections.emptyMap();
     }
 
-    public void setSuite(TestSuit suite) {
-        // Add or replace suite with same name
-        for (int i = 0; i < suites.size(); i++) {
-            if (suites.get(i).getName().equals(suite.getName())) {
-                suites.set(i, suite);
-                return;
-            }
-        }
-        suites.add(suite);
+    /**
+     * Add a suite, replacing one with the same name in place
+     */
+    public synchronized void setSuite(TestSuit suite) {
+        Map<String, TestSuit> next = new LinkedHashMap<>(suites);
+        next.put(suite.getName(), suite);
+        suites = Collections.unmodifiableMap(next);
     }
 
+    /**
+     * Same as {@link #setSuite}; names are unique
+     */
     public void addSuite(TestSuit suite) {
-        suites.add(suite);
+        setSuite(suite);
     }
 
     public TestSuit getSuite(String name) {
-        for (TestSuit suite : suites) {
-            if (suite.getName().equals(name)) {
-                return suite;
-            }
-        }
-        return null;
+        return suites.get(name);
     }
 
+    /**
+     * Read-only snapshot of all suites
+     */
     public List<TestSuit> getAllSuites() {
-        return suites;
+        return Collections.unmodifiableList(new ArrayList<>(suites.values()));
     }
 
     public int size() {
@@ -45,14 +52,13 @@ public class ListOfTestSuites {
     }
 
     public List<String> getSuiteNames() {
-        List<String> names = new ArrayList<>();
-        for (TestSuit suite : suites) {
-            names.add(suite.getName());
-        }
-        return names;
+        return new ArrayList<>(suites.keySet());
     }
 
-    public void deleteSuite(String name) {
-        suites.removeIf(suite -> suite.getName().equals(name));
+    public synchronized void deleteSuite(String name) {
+        if (!suites.containsKey(name)) return;
+        Map<String, TestSuit> next = new LinkedHashMap<>(suites);
+        next.remove(name);
+        suites = Collections.unmodifiableMap(next);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,232 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+import java.util.Enumeration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Drains one output stream of a student process on a background thread into a
+ * byte buffer of bounded size. Bytes beyond the cap are read and discarded so the
+ * child never blocks on a full pipe, and the capture is flagged as truncated.
+ *
+ * A capture can also compare the whole stream against an expected-output file while
+ * draining it; then the bounded buffer is only a preview for reports.
+ */
+public class OutputCapture {
+    private static final int CHUNK_SIZE = 8192;
+    private static final long NOT_COMPARED = -2;
+
+    private final int maxBytes;
+    private final ByteArrayOutputStream buffer;
+    private long totalBytes;
+    private CompletableFuture<Void> done;
+    private volatile long divergence = NOT_COMPARED; // comparing captures only
+    private volatile IOException failure;  // reading the expected file failed
+    private long limitBytes;               // 0 = unlimited
+    private Runnable onLimit;
+    private boolean limitExceeded;
+
+    private OutputCapture(int maxBytes) {
+        this.maxBytes = maxBytes;
+        this.buffer = new ByteArrayOutputStream(Math.min(maxBytes, CHUNK_SIZE));
+        this.totalBytes = 0;
+    }
+
+    /**
+     * Start draining the stream; at most maxBytes are kept
+     */
+    public static OutputCapture start(InputStream in, int maxBytes, Executor executor) {
+        OutputCapture capture = new OutputCapture(checkCap(maxBytes));
+        capture.done = CompletableFuture.runAsync(() -> capture.pump(in), executor);
+        return capture;
+    }
+
+    /**
+     * Start draining the stream while comparing it, followed by tail once it ends, with the
+     * expected output using the given comparator. At most maxBytes are kept as a preview.
+     *
+     * @param expected     expected output; closed when the comparison is over
+     * @param tail         text that counts as the end of the output, e.g. stderr; only asked for after EOF
+     * @param marginChars  whitespace the output may add in one run before it counts as diverged
+     * @param onDivergence run as soon as the output can no longer match, e.g. to kill the process; may be null
+     */
+    public static OutputCapture startComparing(InputStream in, int maxBytes, OutputComparator comparator, Reader expected,
+                                               Supplier<String> tail, long marginChars, Runnable onDivergence,
+                                               Executor executor) {
+        OutputCapture capture = new OutputCapture(checkCap(maxBytes));
+        capture.done = CompletableFuture.runAsync(
+                () -> capture.pumpComparing(in, comparator, expected, tail, marginChars, onDivergence), executor);
+        return capture;
+    }
+
+    private static int checkCap(int maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Output cap cannot be negative: " + maxBytes);
+        }
+        return maxBytes;
+    }
+
+    private void pump(InputStream in) {
+        byte[] chunk = new byte[CHUNK_SIZE];
+        try (InputStream stream = in) {
+            int n;
+            while ((n = stream.read(chunk)) != -1) {
+                append(chunk, 0, n);
+            }
+        } catch (IOException ignored) {
+            // Stream closed because the process was killed; keep what was read
+        }
+    }
+
+    private void pumpComparing(InputStream in, OutputComparator comparator, Reader expectedOutput, Supplier<String> tail,
+                               long marginChars, Runnable onDivergence) {
+        InputStream recorded = new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b != -1) append(new byte[] {(byte) b}, 0, 1);
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) append(b, off, n);
+                return n;
+            }
+        };
+
+        Enumeration<InputStream> parts = new Enumeration<>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasMoreElements() {
+                return next < 2;
+            }
+
+            @Override
+            public InputStream nextElement() {
+                if (next++ == 0) return recorded;
+                return new ByteArrayInputStream(tail.get().getBytes(Charset.defaultCharset()));
+            }
+        };
+
+        try (Reader expected = expectedOutput) {
+            Reader actual = new InputStreamReader(new SequenceInputStream(parts), Charset.defaultCharset());
+            divergence = comparator.divergence(CharScanner.of(actual), CharScanner.of(expected), marginChars);
+            if (divergence != OutputComparator.MATCH && onDivergence != null) {
+                onDivergence.run();
+            }
+        } catch (IOException e) {
+            // Either side failed; the stream is still drained below so the child cannot block
+            failure = e;
+        }
+
+        byte[] chunk = new byte[CHUNK_SIZE];
+        try (InputStream stream = recorded) {
+            while (stream.read(chunk) != -1) {
+                // preview is recorded by the filter
+            }
+        } catch (IOException ignored) {
+            // Stream closed because the process was killed; keep what was read
+        }
+    }
+
+    private synchronized void append(byte[] chunk, int off, int n) {
+        int room = (int) Math.max(0, Math.min(n, maxBytes - (long) buffer.size()));
+        if (room > 0) {
+            buffer.write(chunk, off, room);
+        }
+        totalBytes += n;
+        if (limitBytes > 0 && totalBytes > limitBytes && !limitExceeded) {
+            limitExceeded = true;
+            onLimit.run();
+        }
+    }
+
+    /**
+     * Run onExceeded (once) as soon as more than limitBytes have been written to the stream, e.g.
+     * to kill the process. Bytes read before this call count too.
+     */
+    public OutputCapture enforceLimit(long limitBytes, Runnable onExceeded) {
+        synchronized (this) {
+            this.onLimit = onExceeded;
+            this.limitBytes = limitBytes;
+            append(new byte[0], 0, 0); // catch up with what was already read
+        }
+        return this;
+    }
+
+    /**
+     * Whether the stream went over the limit set with {@link #enforceLimit}
+     */
+    public synchronized boolean isLimitExceeded() {
+        return limitExceeded;
+    }
+
+    /**
+     * Wait until the stream reaches end-of-file
+     *
+     * @return false if it is still open after the given time
+     */
+    public boolean await(long timeoutMillis) throws InterruptedException {
+        try {
+            done.get(Math.max(0, timeoutMillis), TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (java.util.concurrent.ExecutionException e) {
+            return true;
+        }
+    }
+
+    /**
+     * The captured bytes so far, decoded with the platform charset like the child's own output
+     */
+    public synchronized String getText() {
+        return buffer.toString(Charset.defaultCharset());
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized boolean isTruncated() {
+        return totalBytes > maxBytes;
+    }
+
+    /**
+     * For comparing captures: whether the output matched the expected file, or null if the
+     * comparison has not finished or the capture is not comparing
+     */
+    public Boolean getMatch() {
+        long d = divergence;
+        return d == NOT_COMPARED ? null : d == OutputComparator.MATCH;
+    }
+
+    /**
+     * For comparing captures: offset in the normalized output where it stopped matching,
+     * or -1 if it matched or the comparison has not finished
+     */
+    public long getDivergenceOffset() {
+        long d = divergence;
+        return d == NOT_COMPARED ? -1 : d;
+    }
+
+    /**
+     * For comparing captures: why the comparison could not be made, or null
+     */
+    public IOException getFailure() {
+        return failure;
+    }
+}
@@ -0,0 +1,77 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Decides whether a program's output matches the expected output. Implementations are single-pass
+ * scanners over two {@link CharScanner}s and stop at the first difference, so the same comparator
+ * works on in-memory strings and on output streamed from a running process.
+ *
+ * A test case uses its own comparator if it has one, otherwise its suite's (EXACT by default).
+ */
+public interface OutputComparator {
+
+    /** Returned by {@link #divergence} when the outputs match */
+    long MATCH = -1;
+
+    /** Trim both ends, CRLF = LF, everything else must be identical (the original behaviour) */
+    OutputComparator EXACT = new ExactComparator();
+
+    /** Same whitespace-separated tokens in the same order; amount and kind of whitespace is ignored */
+    OutputComparator TOKENS = new TokenComparator(Double.NaN);
+
+    /** All whitespace is ignored, "1 2" matches "12" */
+    OutputComparator WHITESPACE_INSENSITIVE = new WhitespaceInsensitiveComparator();
+
+    /**
+     * Token-wise, but tokens that are both numbers match if they differ by at most epsilon,
+     * absolutely or relative to the expected value
+     */
+    static OutputComparator numeric(double epsilon) {
+        if (!(epsilon >= 0) || Double.isInfinite(epsilon)) {
+            throw new IllegalArgumentException("Epsilon must be a finite non-negative number: " + epsilon);
+        }
+        return new TokenComparator(epsilon);
+    }
+
+    /**
+     * Look up a comparator by {@link #getName()}: "exact", "tokens", "whitespace" or "numeric:&lt;epsilon&gt;"
+     */
+    static OutputComparator forName(String name) {
+        switch (name) {
+            case "exact": return EXACT;
+            case "tokens": return TOKENS;
+            case "whitespace": return WHITESPACE_INSENSITIVE;
+            default:
+                if (name.startsWith("numeric:")) {
+                    try {
+                        return numeric(Double.parseDouble(name.substring("numeric:".length())));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid epsilon in comparator: " + name);
+                    }
+                }
+                throw new IllegalArgumentException("Unknown output comparator: " + name);
+        }
+    }
+
+    /**
+     * Stable name, used in cache keys and result files
+     */
+    String getName();
+
+    /**
+     * Compare two outputs, reading no further than needed.
+     *
+     * @param marginChars how much whitespace the actual output may print in one run, including after
+     *                    the expected output ends, before it counts as diverged
+     * @return {@link #MATCH}, or the offset in the actual output where it stopped matching
+     */
+    long divergence(CharScanner actual, CharScanner expected, long marginChars) throws IOException;
+
+    default boolean matches(CharSequence actual, CharSequence expected) {
+        try {
+            return divergence(CharScanner.of(actual), CharScanner.of(expected), Long.MAX_VALUE) == MATCH;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // in-memory scanners never do I/O
+        }
+    }
+}
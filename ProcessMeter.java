@@ -0,0 +1,130 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a running process while waiting for it: wall time, CPU time from
+ * {@link ProcessHandle.Info} and peak RSS from /proc/&lt;pid&gt;/status (Linux only).
+ *
+ * Both CPU time and VmHWM disappear once the process has exited, so they are sampled in the
+ * wait loop; the last sample before exit is what gets reported. Sampling starts every few
+ * milliseconds and backs off, so short programs are still seen and long ones cost little.
+ * The same samples can guard against a program spawning too many processes.
+ */
+public class ProcessMeter {
+    private static final long FIRST_POLL_MILLIS = 2;
+    private static final long MAX_POLL_MILLIS = 50;
+    private static final boolean HAS_PROC = Files.isDirectory(Paths.get("/proc/self"));
+
+    private final Process process;
+    private final long startNanos;
+    private long endNanos;
+    private long cpuMillis = -1;
+    private long peakRssKb = -1;
+    private int maxChildProcesses = -1;
+    private Runnable onTooManyProcesses;
+    private boolean tooManyProcesses;
+
+    private ProcessMeter(Process process) {
+        this.process = process;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Start measuring a process that was just started
+     */
+    public static ProcessMeter start(Process process) {
+        ProcessMeter meter = new ProcessMeter(process);
+        meter.sample();
+        return meter;
+    }
+
+    /**
+     * Watch the process's descendants while waiting and run onExceeded (once) when more than
+     * maxChildProcesses are alive at a sample, e.g. to kill the tree
+     */
+    public ProcessMeter limitChildProcesses(int maxChildProcesses, Runnable onExceeded) {
+        this.maxChildProcesses = maxChildProcesses;
+        this.onTooManyProcesses = onExceeded;
+        sample();
+        return this;
+    }
+
+    /**
+     * Whether the child-process limit was hit
+     */
+    public boolean isTooManyProcesses() {
+        return tooManyProcesses;
+    }
+
+    /**
+     * Like {@link Process#waitFor(long, TimeUnit)}, sampling the process until it exits or the time is up
+     */
+    public boolean waitFor(long timeoutMillis) throws InterruptedException {
+        long deadline = startNanos + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        long poll = FIRST_POLL_MILLIS;
+        while (true) {
+            long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (left <= 0) {
+                endNanos = System.nanoTime();
+                return false;
+            }
+            if (process.waitFor(Math.min(poll, left), TimeUnit.MILLISECONDS)) {
+                endNanos = System.nanoTime();
+                return true;
+            }
+            sample();
+            poll = Math.min(poll * 2, MAX_POLL_MILLIS);
+        }
+    }
+
+    /**
+     * Usage up to the end of {@link #waitFor}
+     */
+    public ResourceUsage getUsage() {
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        return new ResourceUsage(TimeUnit.NANOSECONDS.toMillis(end - startNanos), cpuMillis, peakRssKb);
+    }
+
+    private void sample() {
+        long cpu = cpuMillis(process.toHandle());
+        if (cpu >= 0) cpuMillis = cpu;
+        long rss = peakRssKb(process.pid());
+        if (rss >= 0) peakRssKb = rss;
+
+        if (maxChildProcesses >= 0 && !tooManyProcesses
+                && process.descendants().limit(maxChildProcesses + 1L).count() > maxChildProcesses) {
+            tooManyProcesses = true;
+            onTooManyProcesses.run();
+        }
+    }
+
+    /**
+     * Total CPU time of a live process, or -1 if the platform does not report it
+     */
+    public static long cpuMillis(ProcessHandle handle) {
+        return handle.info().totalCpuDuration().map(Duration::toMillis).orElse(-1L);
+    }
+
+    /**
+     * VmHWM of a live process in KiB, or -1 if it is not available
+     */
+    public static long peakRssKb(long pid) {
+        if (!HAS_PROC) return -1;
+        Path status = Paths.get("/proc", Long.toString(pid), "status");
+        try {
+            for (String line : Files.readAllLines(status, StandardCharsets.US_ASCII)) {
+                if (line.startsWith("VmHWM:")) {
+                    return Long.parseLong(line.substring(6).replace("kB", "").trim());
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Process already gone
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,275 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * One program's share of a suite run, shipped to a worker node by {@link GradingCluster}: the
+ * submission's sources, the test cases still to run with their timeouts and comparators resolved,
+ * and the suite settings that affect a run. Verdicts are decided back on the coordinator, so the
+ * node only answers with a {@link Result} of raw runs.
+ */
+public class RemoteJob {
+    final Program program;
+    final TestSuit suite;
+    final List<TestCase> tests;
+    final boolean earlyExitOnDivergence;
+    final int divergenceMarginChars;
+    final boolean stopAfterFirstFailure;
+    private final Map<String, byte[]> sources; // relative path -> contents; only on the coordinator side
+
+    private RemoteJob(Program program, TestSuit suite, List<TestCase> tests, boolean earlyExitOnDivergence,
+                      int divergenceMarginChars, boolean stopAfterFirstFailure, Map<String, byte[]> sources) {
+        this.program = program;
+        this.suite = suite;
+        this.tests = tests;
+        this.earlyExitOnDivergence = earlyExitOnDivergence;
+        this.divergenceMarginChars = divergenceMarginChars;
+        this.stopAfterFirstFailure = stopAfterFirstFailure;
+        this.sources = sources;
+    }
+
+    /**
+     * Package a program for shipping. Its .java files (the same set {@link ContentHash#ofSubmission}
+     * covers) are read now, so a bad submission fails here rather than half-way through a frame.
+     */
+    static RemoteJob of(Program program, TestSuit suite, List<TestCase> tests, boolean earlyExitOnDivergence,
+                        int divergenceMarginChars, boolean stopAfterFirstFailure) throws IOException {
+        Path root = program.getProjectDirectory().toPath();
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root)) {
+            files = walk.filter(Files::isRegularFile)
+                    .filter(p -> p.toString().endsWith(".java"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        Map<String, byte[]> sources = new LinkedHashMap<>();
+        for (Path file : files) {
+            sources.put(relative(root, file), Files.readAllBytes(file));
+        }
+        return new RemoteJob(program, suite, tests, earlyExitOnDivergence, divergenceMarginChars,
+                stopAfterFirstFailure, sources);
+    }
+
+    private static String relative(Path root, Path file) {
+        return root.relativize(file).toString().replace('\\', '/');
+    }
+
+    // ---------------------- Wire Format ----------------------
+
+    /**
+     * Frame: UTF program name, UTF main file, int count + (UTF path, int length + bytes) per source,
+     * int maxOutputBytes, UTF limits, boolean earlyExit, int marginChars, boolean stopAfterFirstFailure,
+     * int count + per test (long timeout, UTF comparator, boolean fileBacked, input, expected output)
+     * in the order they should run.
+     * In-memory test data is int length + UTF-8 bytes; file-backed data is streamed as long length + bytes,
+     * with length -1 for a file that does not exist.
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        Path root = program.getProjectDirectory().toPath();
+        out.writeUTF(program.getName());
+        out.writeUTF(relative(root, program.getJavaFile().toPath()));
+        out.writeInt(sources.size());
+        for (Map.Entry<String, byte[]> source : sources.entrySet()) {
+            out.writeUTF(source.getKey());
+            out.writeInt(source.getValue().length);
+            out.write(source.getValue());
+        }
+
+        out.writeInt(suite.getMaxOutputBytes());
+        out.writeUTF(suite.getResourceLimits().toString());
+        out.writeBoolean(earlyExitOnDivergence);
+        out.writeInt(divergenceMarginChars);
+        out.writeBoolean(stopAfterFirstFailure);
+        out.writeInt(tests.size());
+        for (TestCase tc : tests) {
+            out.writeLong(suite.getTimeoutFor(tc));
+            out.writeUTF(suite.getComparatorFor(tc).getName());
+            out.writeBoolean(tc.isFileBacked());
+            if (tc.isFileBacked()) {
+                writeFile(out, tc.getInputFile());
+                writeFile(out, tc.getExpectedFile());
+            } else {
+                writeString(out, tc.getInput());
+                writeString(out, tc.getExpectedOutput());
+            }
+        }
+    }
+
+    /**
+     * Read a job and unpack it under dir: the sources go to dir/submission, file-backed test data
+     * next to it. Paths that would leave dir are rejected.
+     */
+    static RemoteJob readFrom(DataInputStream in, Path dir) throws IOException {
+        Path projectDir = dir.resolve("submission");
+        String name = in.readUTF();
+        Path mainFile = inside(projectDir, in.readUTF());
+        int sourceCount = in.readInt();
+        for (int i = 0; i < sourceCount; i++) {
+            Path target = inside(projectDir, in.readUTF());
+            byte[] content = new byte[in.readInt()];
+            in.readFully(content);
+            Files.createDirectories(target.getParent());
+            Files.write(target, content);
+        }
+
+        int maxOutputBytes = in.readInt();
+        String limits = in.readUTF();
+        boolean earlyExit = in.readBoolean();
+        int margin = in.readInt();
+        boolean stopAfterFirstFailure = in.readBoolean();
+        int testCount = in.readInt();
+        ListOfTestCase cases = new ListOfTestCase();
+        try {
+            for (int i = 0; i < testCount; i++) {
+                long timeoutMillis = in.readLong();
+                OutputComparator comparator = OutputComparator.forName(in.readUTF());
+                TestCase tc;
+                if (in.readBoolean()) {
+                    Path input = dir.resolve("test" + i + ".in");
+                    Path expected = dir.resolve("test" + i + ".expected");
+                    readFile(in, input);
+                    readFile(in, expected);
+                    tc = TestCase.restoreFileBacked(input, expected); // a missing file fails its run, as it would locally
+                } else {
+                    tc = new TestCase(readString(in), readString(in));
+                }
+                tc.setTimeoutMillis(timeoutMillis);
+                tc.setComparator(comparator);
+                cases.add(tc);
+            }
+
+            TestSuit suite = TestSuit.detached(name, cases);
+            suite.setMaxOutputBytes(maxOutputBytes);
+            suite.setResourceLimits(ResourceLimits.parse(limits));
+            Program program = new Program(name, projectDir.toFile(), mainFile.toFile());
+            return new RemoteJob(program, suite, cases.asList(), earlyExit, margin, stopAfterFirstFailure, null);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid job: " + e.getMessage(), e);
+        }
+    }
+
+    private static Path inside(Path dir, String relativePath) throws IOException {
+        Path target = dir.resolve(relativePath).normalize();
+        if (!target.startsWith(dir) || target.equals(dir)) {
+            throw new IOException("Path outside the job directory: " + relativePath);
+        }
+        return target;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeFile(DataOutputStream out, Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            out.writeLong(-1);
+            return;
+        }
+        long length = Files.size(file);
+        out.writeLong(length);
+        try (InputStream in = Files.newInputStream(file)) {
+            copy(in, out, length);
+        }
+    }
+
+    private static void readFile(DataInputStream in, Path file) throws IOException {
+        long length = in.readLong();
+        if (length < 0) return;
+        try (OutputStream out = Files.newOutputStream(file)) {
+            copy(in, out, length);
+        }
+    }
+
+    /**
+     * Copy exactly length bytes; a file that shrank while it was sent breaks the frame
+     */
+    private static void copy(InputStream in, OutputStream out, long length) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long remaining = length;
+        while (remaining > 0) {
+            int n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (n < 0) throw new EOFException("Data ended " + remaining + " bytes early");
+            out.write(buffer, 0, n);
+            remaining -= n;
+        }
+    }
+
+    /**
+     * What a worker node sends back for a job
+     */
+    public static class Result {
+        final boolean compiled;
+        final long compileMillis;
+        final String compileLog;
+        final RunResult[] runs; // per shipped test, null where the run itself failed; empty if not compiled,
+                                // short if the node stopped after the first failure
+        final String error;     // why the node could not grade the job at all; null if it did
+
+        Result(boolean compiled, long compileMillis, String compileLog, RunResult[] runs) {
+            this(compiled, compileMillis, compileLog, runs, null);
+        }
+
+        private Result(boolean compiled, long compileMillis, String compileLog, RunResult[] runs, String error) {
+            this.compiled = compiled;
+            this.compileMillis = compileMillis;
+            this.compileLog = compileLog;
+            this.runs = runs;
+            this.error = error;
+        }
+
+        /**
+         * The answer to a job the node failed on; the coordinator grades that program itself
+         */
+        static Result failed(String error) {
+            return new Result(false, 0, "", new RunResult[0], error);
+        }
+
+        /**
+         * Frame: boolean failed (+ int length + UTF-8 error), boolean compiled, long compileMillis,
+         * int length + UTF-8 compiler log, int count + per run (boolean present, {@link RunResult} frame)
+         */
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeBoolean(error != null);
+            if (error != null) writeString(out, error);
+            out.writeBoolean(compiled);
+            out.writeLong(compileMillis);
+            writeString(out, compileLog);
+            out.writeInt(runs.length);
+            for (RunResult run : runs) {
+                out.writeBoolean(run != null);
+                if (run != null) run.writeTo(out);
+            }
+        }
+
+        static Result readFrom(DataInputStream in) throws IOException {
+            String error = in.readBoolean() ? readString(in) : null;
+            boolean compiled = in.readBoolean();
+            long compileMillis = in.readLong();
+            String compileLog = readString(in);
+            RunResult[] runs = new RunResult[in.readInt()];
+            for (int i = 0; i < runs.length; i++) {
+                runs[i] = in.readBoolean() ? RunResult.readFrom(in) : null;
+            }
+            return new Result(compiled, compileMillis, compileLog, runs, error);
+        }
+    }
+}
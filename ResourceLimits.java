@@ -0,0 +1,157 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-suite caps on what one student run may use. Heap and stack are passed to the JVM as
+ * -Xmx / -Xss; the output limit and the child-process limit are enforced while the program
+ * runs by killing its process tree. A run that hits a limit gets the matching verdict instead
+ * of FAIL, TIMEOUT or ERROR.
+ *
+ * Limits apply per process, so a suite with limits runs every test in its own process, even
+ * in the WORKER_POOL and BATCH execution modes.
+ */
+public class ResourceLimits {
+    public static final ResourceLimits NONE = new ResourceLimits(0, 0, 0, -1);
+
+    private final int maxHeapMb;          // 0 = JVM default
+    private final int maxStackKb;         // 0 = JVM default
+    private final long maxOutputBytes;    // per stream; 0 = unlimited
+    private final int maxChildProcesses;  // -1 = unlimited
+
+    private ResourceLimits(int maxHeapMb, int maxStackKb, long maxOutputBytes, int maxChildProcesses) {
+        this.maxHeapMb = maxHeapMb;
+        this.maxStackKb = maxStackKb;
+        this.maxOutputBytes = maxOutputBytes;
+        this.maxChildProcesses = maxChildProcesses;
+    }
+
+    /**
+     * Same limits with a maximum heap (-Xmx) in MiB; 0 removes the cap
+     */
+    public ResourceLimits withMaxHeapMb(int maxHeapMb) {
+        if (maxHeapMb < 0) {
+            throw new IllegalArgumentException("Heap limit cannot be negative: " + maxHeapMb);
+        }
+        return new ResourceLimits(maxHeapMb, maxStackKb, maxOutputBytes, maxChildProcesses);
+    }
+
+    /**
+     * Same limits with a thread stack size (-Xss) in KiB; 0 removes the cap
+     */
+    public ResourceLimits withMaxStackKb(int maxStackKb) {
+        if (maxStackKb < 0) {
+            throw new IllegalArgumentException("Stack limit cannot be negative: " + maxStackKb);
+        }
+        return new ResourceLimits(maxHeapMb, maxStackKb, maxOutputBytes, maxChildProcesses);
+    }
+
+    /**
+     * Same limits with a cap on bytes written to stdout (and, separately, stderr); 0 removes the cap.
+     * Unlike the suite's output cap, which only trims what is kept, going over this kills the run.
+     */
+    public ResourceLimits withMaxOutputBytes(long maxOutputBytes) {
+        if (maxOutputBytes < 0) {
+            throw new IllegalArgumentException("Output limit cannot be negative: " + maxOutputBytes);
+        }
+        return new ResourceLimits(maxHeapMb, maxStackKb, maxOutputBytes, maxChildProcesses);
+    }
+
+    /**
+     * Same limits with a cap on live descendant processes; -1 removes the cap, 0 forbids any
+     */
+    public ResourceLimits withMaxChildProcesses(int maxChildProcesses) {
+        if (maxChildProcesses < -1) {
+            throw new IllegalArgumentException("Process limit must be -1 or more: " + maxChildProcesses);
+        }
+        return new ResourceLimits(maxHeapMb, maxStackKb, maxOutputBytes, maxChildProcesses);
+    }
+
+    public int getMaxHeapMb() {
+        return maxHeapMb;
+    }
+
+    public int getMaxStackKb() {
+        return maxStackKb;
+    }
+
+    public long getMaxOutputBytes() {
+        return maxOutputBytes;
+    }
+
+    public int getMaxChildProcesses() {
+        return maxChildProcesses;
+    }
+
+    /**
+     * Whether any limit is set
+     */
+    public boolean isEnforced() {
+        return maxHeapMb > 0 || maxStackKb > 0 || maxOutputBytes > 0 || maxChildProcesses >= 0;
+    }
+
+    /**
+     * JVM options to put before the main class
+     */
+    public List<String> jvmOptions() {
+        List<String> options = new ArrayList<>();
+        if (maxHeapMb > 0) options.add("-Xmx" + maxHeapMb + "m");
+        if (maxStackKb > 0) options.add("-Xss" + maxStackKb + "k");
+        return options;
+    }
+
+    /**
+     * Which limit, if any, a finished run broke
+     *
+     * @param tooManyProcesses the process watchdog fired
+     * @param tooMuchOutput    stdout or stderr went over the output limit
+     * @param exitCode         exit code of the program
+     * @param stderr           what the program wrote to stderr
+     * @return the verdict for the broken limit, or null if the run stayed within its limits
+     */
+    public Verdict violation(boolean tooManyProcesses, boolean tooMuchOutput, int exitCode, String stderr) {
+        if (tooManyProcesses) return Verdict.PROCESS_LIMIT;
+        if (tooMuchOutput) return Verdict.OUTPUT_LIMIT;
+        if (exitCode != 0 && stderr != null) {
+            if (maxHeapMb > 0 && stderr.contains("java.lang.OutOfMemoryError")) return Verdict.MEMORY_LIMIT;
+            if (maxStackKb > 0 && stderr.contains("java.lang.StackOverflowError")) return Verdict.STACK_LIMIT;
+        }
+        return null;
+    }
+
+    /**
+     * Read limits back from {@link #toString()}, e.g. "heap=256m,processes=0" or "none"
+     */
+    public static ResourceLimits parse(String text) {
+        ResourceLimits limits = NONE;
+        if (text == null || text.isBlank() || text.equals("none")) return limits;
+        for (String part : text.split(",")) {
+            int eq = part.indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("Invalid resource limit: " + part);
+            String key = part.substring(0, eq).trim();
+            String value = part.substring(eq + 1).trim();
+            try {
+                switch (key) {
+                    case "heap": limits = limits.withMaxHeapMb(Integer.parseInt(value.replace("m", ""))); break;
+                    case "stack": limits = limits.withMaxStackKb(Integer.parseInt(value.replace("k", ""))); break;
+                    case "output": limits = limits.withMaxOutputBytes(Long.parseLong(value)); break;
+                    case "processes": limits = limits.withMaxChildProcesses(Integer.parseInt(value)); break;
+                    default: throw new IllegalArgumentException("Unknown resource limit: " + key);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid value for resource limit " + key + ": " + value);
+            }
+        }
+        return limits;
+    }
+
+    @Override
+    public String toString() {
+        if (!isEnforced()) return "none";
+        List<String> parts = new ArrayList<>();
+        if (maxHeapMb > 0) parts.add("heap=" + maxHeapMb + "m");
+        if (maxStackKb > 0) parts.add("stack=" + maxStackKb + "k");
+        if (maxOutputBytes > 0) parts.add("output=" + maxOutputBytes);
+        if (maxChildProcesses >= 0) parts.add("processes=" + maxChildProcesses);
+        return String.join(",", parts);
+    }
+}
@@ -0,0 +1,47 @@
+/**
+ * Resources one test run used. Any figure that could not be measured is -1.
+ */
+public class ResourceUsage {
+    public static final ResourceUsage UNKNOWN = new ResourceUsage(-1, -1, -1);
+
+    private final long wallMillis;
+    private final long cpuMillis;
+    private final long peakRssKb;
+
+    public ResourceUsage(long wallMillis, long cpuMillis, long peakRssKb) {
+        this.wallMillis = wallMillis;
+        this.cpuMillis = cpuMillis;
+        this.peakRssKb = peakRssKb;
+    }
+
+    public static ResourceUsage wallOnly(long wallMillis) {
+        return new ResourceUsage(wallMillis, -1, -1);
+    }
+
+    public long getWallMillis() {
+        return wallMillis;
+    }
+
+    /**
+     * User + system CPU time of the process
+     */
+    public long getCpuMillis() {
+        return cpuMillis;
+    }
+
+    /**
+     * Peak resident set size (VmHWM) in KiB; only measured on Linux for programs in their own process
+     */
+    public long getPeakRssKb() {
+        return peakRssKb;
+    }
+
+    public ResourceUsage withWallMillis(long wallMillis) {
+        return new ResourceUsage(wallMillis, cpuMillis, peakRssKb);
+    }
+
+    @Override
+    public String toString() {
+        return "wall=" + wallMillis + "ms cpu=" + cpuMillis + "ms rss=" + peakRssKb + "KiB";
+    }
+}
@@ -0,0 +1,177 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Persistent memo of test outcomes, keyed by the submission's content hash and a hash
+ * of everything about a test case that can change its verdict. Re-running a suite after
+ * adding or editing a few test cases only executes the new or changed ones.
+ *
+ * Layout: &lt;dir&gt;/&lt;submission hash&gt;/&lt;test hash&gt;, each file holding the verdict,
+ * the truncation flag and the captured output. Submissions are evicted least-recently-used
+ * once there are more than maxEntries, as in {@link CompileCache}.
+ */
+public class ResultCache {
+    public static final String DEFAULT_DIR = ".grader_cache/results";
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    private final Path cacheDir;
+    private final int maxEntries;
+    private int entryCount = -1; // submissions in the cache; -1 until first counted. Guarded by this
+
+    public ResultCache(Path cacheDir, int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Cache must hold at least one entry: " + maxEntries);
+        }
+        this.cacheDir = cacheDir;
+        this.maxEntries = maxEntries;
+    }
+
+    public ResultCache() {
+        this(Paths.get(DEFAULT_DIR), DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * A remembered outcome
+     */
+    public static class Entry {
+        final Verdict verdict;
+        final boolean truncated;
+        final String output;
+
+        Entry(Verdict verdict, boolean truncated, String output) {
+            this.verdict = verdict;
+            this.truncated = truncated;
+            this.output = output;
+        }
+    }
+
+    /**
+     * Hash of the inputs that decide a test case's verdict within its suite. Early exit is part
+     * of it, as it cuts the retained output short and its margin decides when output diverged.
+     */
+    public static String testKey(TestCase tc, TestSuit suite, boolean earlyExitOnDivergence, int marginChars) {
+        String input = tc.getInput();
+        String expected = tc.getExpectedOutput();
+        if (tc.isFileBacked()) {
+            // Hashing multi-MB files for every program would cost more than it saves
+            input = fileStamp(tc.getInputFile());
+            expected = fileStamp(tc.getExpectedFile());
+        }
+        return ContentHash.of(input, expected, suite.getComparatorFor(tc).getName(),
+                Long.toString(suite.getTimeoutFor(tc)), Integer.toString(suite.getMaxOutputBytes()),
+                suite.getResourceLimits().toString(),
+                earlyExitOnDivergence ? "early-exit:" + marginChars : "full");
+    }
+
+    /**
+     * Whether an outcome is worth remembering: not a grader error, nor a timeout, which a busy
+     * machine can cause as easily as the submission, nor a skipped test, which did not run
+     */
+    public static boolean isCacheable(Verdict verdict) {
+        return verdict != Verdict.TIMEOUT && verdict != Verdict.SKIPPED && verdict != Verdict.ERROR;
+    }
+
+    /**
+     * Path, size and modification time of a test data file
+     */
+    private static String fileStamp(Path file) {
+        try {
+            return "file:" + file + ":" + Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return "file:" + file + ":missing";
+        }
+    }
+
+    /**
+     * @return the remembered outcome, or null if this pair has not been run before
+     */
+    public Entry lookup(String submissionHash, String testKey) {
+        Path file = cacheDir.resolve(submissionHash).resolve(testKey);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (BufferedReader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Verdict verdict = Verdict.valueOf(r.readLine());
+            boolean truncated = Boolean.parseBoolean(r.readLine());
+            StringBuilder output = new StringBuilder();
+            char[] buf = new char[4096];
+            int n;
+            while ((n = r.read(buf)) != -1) {
+                output.append(buf, 0, n);
+            }
+            Files.setLastModifiedTime(file.getParent(), FileTime.fromMillis(System.currentTimeMillis()));
+            return new Entry(verdict, truncated, output.toString());
+        } catch (IOException | RuntimeException e) {
+            // Unreadable or from an older format: treat as a miss and overwrite later
+            return null;
+        }
+    }
+
+    public void store(String submissionHash, String testKey, Verdict verdict, boolean truncated, String output) {
+        Path dir = cacheDir.resolve(submissionHash);
+        try {
+            if (!Files.isDirectory(dir)) {
+                Files.createDirectories(dir);
+                added();
+            }
+            Path tmp = Files.createTempFile(dir, testKey, ".tmp");
+            Files.writeString(tmp, verdict.name() + "\n" + truncated + "\n" + (output == null ? "" : output),
+                    StandardCharsets.UTF_8);
+            Files.move(tmp, dir.resolve(testKey), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Warning: could not write result cache entry: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Count a new submission, and only list the cache to evict once the count says it is full
+     */
+    private synchronized void added() throws IOException {
+        if (entryCount >= 0 && ++entryCount <= maxEntries) return;
+
+        List<Path> entries = new ArrayList<>();
+        try (Stream<Path> list = Files.list(cacheDir)) {
+            list.filter(Files::isDirectory).forEach(entries::add);
+        }
+        entryCount = entries.size();
+        if (entries.size() <= maxEntries) return;
+
+        entries.sort(Comparator.comparing(ResultCache::lastUsed));
+        for (int i = 0; i < entries.size() - maxEntries; i++) {
+            deleteRecursively(entries.get(i));
+        }
+        entryCount = maxEntries;
+    }
+
+    private static FileTime lastUsed(Path entry) {
+        try {
+            return Files.getLastModifiedTime(entry);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static void deleteRecursively(Path dir) {
+        try (Stream<Path> walk = Files.walk(dir)) {
+            walk.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.deleteIfExists(p);
+                } catch (IOException ignored) {
+                    // Best effort; a leftover file only wastes space
+                }
+            });
+        } catch (IOException ignored) {
+            // Already gone
+        }
+    }
+}
@@ -0,0 +1,429 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Append-only index of every saved run, kept in test_results/history.idx (JSON lines).
+ *
+ * Each saved run appends one record per program (suite, run id, program, counts, result file,
+ * and per test whether it passed and how long it took). The index is loaded once and then read
+ * incrementally from the last offset, so trend, last-N and scheduling queries never re-read
+ * result files and stay cheap as the history grows.
+ */
+public class ResultHistory {
+    public static final String INDEX_FILE = "history.idx";
+
+    private final Path directory;
+    private final Path indexFile;
+
+    // suite -> runs in run id order; suite -> program -> that program's entries in run order
+    private final Map<String, List<Run>> runsBySuite = new HashMap<>();
+    private final Map<String, Map<String, List<Entry>>> entriesBySuiteAndProgram = new HashMap<>();
+    private long loadedBytes;
+
+    /**
+     * One program's outcome in one run
+     */
+    public static class Entry {
+        final String runId;
+        final String program;
+        final boolean compiled;
+        final int passed;
+        final int failed;
+        final int timedOut;
+        final String tests; // as stored in the index, parsed on demand; empty for older records
+
+        Entry(String runId, String program, boolean compiled, int passed, int failed, int timedOut, String tests) {
+            this.runId = runId;
+            this.program = program;
+            this.compiled = compiled;
+            this.passed = passed;
+            this.failed = failed;
+            this.timedOut = timedOut;
+            this.tests = tests;
+        }
+
+        /**
+         * Outcome of every test that ran, in suite order; empty if the run was recorded without them
+         */
+        public List<TestOutcome> getTestOutcomes() {
+            List<TestOutcome> outcomes = new ArrayList<>();
+            if (tests.isEmpty()) return outcomes;
+            for (String test : tests.split(" ")) {
+                String[] parts = test.split(":");
+                if (parts.length != 3) {
+                    throw new IllegalArgumentException("Malformed test outcome in result history: " + test);
+                }
+                outcomes.add(new TestOutcome(parts[0], parts[1].equals("P"), Integer.parseInt(parts[2])));
+            }
+            return outcomes;
+        }
+
+        public double getPassPercentage() {
+            int total = passed + failed;
+            return total == 0 ? 0.0 : passed * 100.0 / total;
+        }
+
+        /**
+         * "85.0%" or "Comp. Failed", as the comparison tables show it
+         */
+        public String getRateLabel() {
+            return compiled ? String.format("%.1f%%", getPassPercentage()) : "Comp. Failed";
+        }
+    }
+
+    /**
+     * A program's outcome on one test, which is identified across runs by {@link #testKey}
+     */
+    public static class TestOutcome {
+        final String key;
+        final boolean passed;
+        final int millis; // -1 if not timed
+
+        TestOutcome(String key, boolean passed, int millis) {
+            this.key = key;
+            this.passed = passed;
+            this.millis = millis;
+        }
+    }
+
+    /**
+     * All entries of one run of a suite
+     */
+    public static class Run {
+        final String runId;
+        final String resultFile;
+        final Map<String, Entry> programs = new LinkedHashMap<>();
+
+        Run(String runId, String resultFile) {
+            this.runId = runId;
+            this.resultFile = resultFile;
+        }
+
+        public String getRunId() {
+            return runId;
+        }
+
+        public String getResultFile() {
+            return resultFile;
+        }
+    }
+
+    public ResultHistory(Path directory) {
+        this.directory = directory;
+        this.indexFile = directory.resolve(INDEX_FILE);
+    }
+
+    // ---------------------- Writing ----------------------
+
+    /**
+     * Identifies a test across runs by its input and expected output, so reordering or editing
+     * a suite keeps the history of its unchanged tests
+     */
+    public static String testKey(String input, String expected) {
+        return ContentHash.of(input, expected).substring(0, 16);
+    }
+
+    /**
+     * Add one run to the index. The records of a run go out in a single append.
+     *
+     * @param testKeys {@link #testKey} of each test, in suite order
+     * @param results  the run's verdicts and times, or null to record only the counts
+     */
+    public synchronized void append(String suite, String runId, String resultFile,
+                                    Collection<TestSuit.ProgramResult> programs,
+                                    List<String> testKeys, ResultMatrix results) throws IOException {
+        Files.createDirectories(directory);
+        if (!Files.exists(indexFile)) {
+            backfill(resultFile);
+        }
+
+        Map<String, Integer> rows = new HashMap<>();
+        if (results != null) {
+            for (int p = 0; p < results.getProgramCount(); p++) rows.put(results.getProgramName(p), p);
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (TestSuit.ProgramResult pr : programs) {
+            sb.append("{\"suite\":");
+            ResultWriter.appendString(sb, suite);
+            sb.append(",\"run\":");
+            ResultWriter.appendString(sb, runId);
+            sb.append(",\"program\":");
+            ResultWriter.appendString(sb, pr.programName);
+            sb.append(",\"compiled\":").append(pr.compiled)
+              .append(",\"passed\":").append(pr.passed)
+              .append(",\"failed\":").append(pr.failed)
+              .append(",\"timedOut\":").append(pr.timedOut)
+              .append(",\"file\":");
+            ResultWriter.appendString(sb, resultFile);
+            Integer row = rows.get(pr.programName);
+            if (row != null) {
+                sb.append(",\"tests\":");
+                ResultWriter.appendString(sb, testOutcomes(results, row, testKeys));
+            }
+            sb.append("}\n");
+        }
+        Files.write(indexFile, sb.toString().getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * "key:P:12 key:F:-1 ...": pass or fail and milliseconds of each test the program ran
+     */
+    private static String testOutcomes(ResultMatrix results, int program, List<String> testKeys) {
+        StringBuilder sb = new StringBuilder();
+        int testCount = Math.min(testKeys.size(), results.getTestCount());
+        for (int t = 0; t < testCount; t++) {
+            Verdict v = results.get(program, t);
+            if (v == null || v == Verdict.SKIPPED) continue;
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(testKeys.get(t)).append(':').append(v == Verdict.PASS ? 'P' : 'F')
+              .append(':').append(results.getMillis(program, t));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Build the index from JSONL result files saved before the index existed
+     *
+     * @param pending result file about to be appended by the caller, or null
+     */
+    private void backfill(String pending) throws IOException {
+        List<Path> logs = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.jsonl")) {
+            for (Path f : files) {
+                String name = f.getFileName().toString();
+                if (!name.equals(INDEX_FILE) && !name.equals(pending)) logs.add(f);
+            }
+        }
+        Collections.sort(logs);
+
+        Files.write(indexFile, new byte[0], StandardOpenOption.CREATE);
+        for (Path f : logs) {
+            try {
+                ResultLog log = ResultLog.read(f);
+                List<String> testKeys = new ArrayList<>();
+                for (ResultLog.TestEntry test : log.getTests()) testKeys.add(testKey(test.input, test.expected));
+                append(log.getSuiteName(), runIdOf(f, log.getSuiteName()), f.getFileName().toString(),
+                        log.getPrograms(), testKeys, log.getResults());
+            } catch (IOException e) {
+                System.err.println("Warning: skipping " + f.getFileName() + " in result history: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Result files are named <suite>_<yyyyMMdd_HHmmss>.jsonl; the timestamp is the run id
+     */
+    private static String runIdOf(Path file, String suite) {
+        String name = file.getFileName().toString();
+        name = name.substring(0, name.length() - ".jsonl".length());
+        return name.startsWith(suite + "_") ? name.substring(suite.length() + 1) : name;
+    }
+
+    // ---------------------- Queries ----------------------
+
+    /**
+     * Runs of a suite, oldest first
+     */
+    public synchronized List<Run> getRuns(String suite) throws IOException {
+        refresh();
+        return new ArrayList<>(runsBySuite.getOrDefault(suite, Collections.emptyList()));
+    }
+
+    /**
+     * The last n runs of a suite, oldest first
+     */
+    public synchronized List<Run> getLastRuns(String suite, int n) throws IOException {
+        List<Run> runs = getRuns(suite);
+        return new ArrayList<>(runs.subList(Math.max(0, runs.size() - n), runs.size()));
+    }
+
+    /**
+     * Every recorded outcome of a program in a suite, oldest first
+     */
+    public synchronized List<Entry> getTrend(String suite, String program) throws IOException {
+        refresh();
+        Map<String, List<Entry>> byProgram = entriesBySuiteAndProgram.get(suite);
+        if (byProgram == null) return Collections.emptyList();
+        return new ArrayList<>(byProgram.getOrDefault(program, Collections.emptyList()));
+    }
+
+    /**
+     * Pass-rate trend of one program across all runs of a suite
+     */
+    public String trendReport(String suite, String program) throws IOException {
+        List<Entry> trend = getTrend(suite, program);
+        StringBuilder sb = new StringBuilder();
+        sb.append("Pass-rate trend for '").append(program).append("' in suite '").append(suite).append("'\n\n");
+        if (trend.isEmpty()) {
+            sb.append("No recorded runs.\n");
+            return sb.toString();
+        }
+
+        sb.append(String.format("%-18s | %-14s | %s\n", "Run", "Rate", "Change"));
+        sb.append("───────────────────┼────────────────┼──────────\n");
+        Entry previous = null;
+        for (Entry e : trend) {
+            sb.append(String.format("%-18s | %-14s | %s\n", e.runId, e.getRateLabel(), change(previous, e)));
+            previous = e;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Side-by-side pass rates of every program over the last n runs of a suite
+     */
+    public String compareLastRuns(String suite, int n) throws IOException {
+        if (n < 1) {
+            throw new IllegalArgumentException("Number of runs must be at least 1");
+        }
+        List<Run> runs = getRuns(suite);
+        runs = runs.subList(Math.max(0, runs.size() - n), runs.size());
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("Last ").append(runs.size()).append(" run(s) of suite '").append(suite).append("'\n\n");
+        if (runs.isEmpty()) {
+            sb.append("No recorded runs.\n");
+            return sb.toString();
+        }
+
+        TreeSet<String> programs = new TreeSet<>();
+        for (Run run : runs) programs.addAll(run.programs.keySet());
+
+        sb.append(String.format("%-25s", "Student (Program)"));
+        for (Run run : runs) sb.append(String.format(" | %-15s", run.runId));
+        sb.append(" | Change\n");
+        sb.append("─".repeat(26 + runs.size() * 18 + 9)).append("\n");
+
+        for (String program : programs) {
+            sb.append(String.format("%-25s", program));
+            Entry first = null;
+            Entry last = null;
+            for (Run run : runs) {
+                Entry e = run.programs.get(program);
+                sb.append(String.format(" | %-15s", e == null ? "N/A" : e.getRateLabel()));
+                if (e != null) {
+                    if (first == null) first = e;
+                    last = e;
+                }
+            }
+            sb.append(" | ").append(first == last ? "" : change(first, last)).append("\n");
+        }
+        return sb.toString();
+    }
+
+    private static String change(Entry from, Entry to) {
+        if (from == null || !from.compiled || !to.compiled) return "";
+        double diff = to.getPassPercentage() - from.getPassPercentage();
+        if (diff > 0) return String.format("+%.1f%%", diff);
+        if (diff < 0) return String.format("%.1f%%", diff);
+        return "=";
+    }
+
+    // ---------------------- Index loading ----------------------
+
+    /**
+     * Read whatever was appended since the last call; start over if the file shrank
+     */
+    private void refresh() throws IOException {
+        if (!Files.exists(indexFile)) {
+            if (!Files.isDirectory(directory)) return;
+            backfill(null);
+        }
+
+        long size = Files.size(indexFile);
+        if (size < loadedBytes) {
+            runsBySuite.clear();
+            entriesBySuiteAndProgram.clear();
+            loadedBytes = 0;
+        }
+        if (size == loadedBytes) return;
+
+        byte[] tail;
+        try (RandomAccessFile raf = new RandomAccessFile(indexFile.toFile(), "r")) {
+            raf.seek(loadedBytes);
+            tail = new byte[(int) (size - loadedBytes)];
+            raf.readFully(tail);
+        }
+
+        // Only consume complete lines; a run being appended concurrently is picked up next time
+        int end = tail.length;
+        while (end > 0 && tail[end - 1] != '\n') end--;
+        String text = new String(tail, 0, end, StandardCharsets.UTF_8);
+        loadedBytes += end;
+
+        for (String line : text.split("\n")) {
+            if (line.isBlank()) continue;
+            try {
+                index(ResultLog.parseRecord(line));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Warning: skipping malformed result history record: " + e.getMessage());
+            }
+        }
+    }
+
+    private void index(Map<String, String> r) {
+        String suite = r.get("suite");
+        String runId = r.get("run");
+        String program = r.get("program");
+        if (suite == null || runId == null || program == null) return;
+
+        Entry entry = new Entry(runId, program, Boolean.parseBoolean(r.get("compiled")),
+                intValue(r.get("passed")), intValue(r.get("failed")), intValue(r.get("timedOut")),
+                r.getOrDefault("tests", ""));
+
+        List<Run> runs = runsBySuite.computeIfAbsent(suite, k -> new ArrayList<>());
+        Run run = runs.isEmpty() ? null : runs.get(runs.size() - 1);
+        if (run == null || !run.runId.equals(runId)) {
+            run = findRun(runs, runId);
+            if (run == null) {
+                run = new Run(runId, r.get("file"));
+                insertInOrder(runs, run);
+            }
+        }
+        run.programs.put(program, entry);
+
+        List<Entry> trend = entriesBySuiteAndProgram
+                .computeIfAbsent(suite, k -> new HashMap<>())
+                .computeIfAbsent(program, k -> new ArrayList<>());
+        int i = trend.size();
+        while (i > 0 && trend.get(i - 1).runId.compareTo(runId) > 0) i--;
+        trend.add(i, entry);
+    }
+
+    /**
+     * Runs are nearly always appended in order, so these scan from the end
+     */
+    private static Run findRun(List<Run> runs, String runId) {
+        for (int i = runs.size() - 1; i >= 0; i--) {
+            int c = runs.get(i).runId.compareTo(runId);
+            if (c == 0) return runs.get(i);
+            if (c < 0) return null;
+        }
+        return null;
+    }
+
+    private static void insertInOrder(List<Run> runs, Run run) {
+        int i = runs.size();
+        while (i > 0 && runs.get(i - 1).runId.compareTo(run.runId) > 0) i--;
+        runs.add(i, run);
+    }
+
+    private static int intValue(String v) {
+        return v == null ? 0 : Integer.parseInt(v);
+    }
+}
@@ -0,0 +1,421 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A saved suite run loaded from a JSONL result file written by {@link ResultWriter}.
+ *
+ * Loading is a single pass over the records with a small hand-written scanner, so reloading
+ * and comparing runs costs O(records). The human-readable report is rendered from this model.
+ */
+public class ResultLog {
+    private String suiteName = "";
+    private String description = "";
+    private String executedAt = "";
+    private String comparator = "exact";
+    private String limits = "none";
+    private final List<TestEntry> tests = new ArrayList<>();
+    private final List<TestSuit.ProgramResult> programs = new ArrayList<>();
+    private ResultMatrix results; // null when the run has no per-program results
+
+    /**
+     * A test case as it was when the run was saved
+     */
+    public static class TestEntry {
+        final String input;
+        final String expected;
+        final String actual;      // only for test cases evaluated on their own
+        final Verdict verdict;
+        final String error;
+        final String comparator;  // null = the run's comparator
+
+        TestEntry(String input, String expected, String actual, Verdict verdict, String error, String comparator) {
+            this.input = input;
+            this.expected = expected;
+            this.actual = actual;
+            this.verdict = verdict;
+            this.error = error;
+            this.comparator = comparator;
+        }
+    }
+
+    private ResultLog() {
+    }
+
+    public static boolean isResultLog(Path file) {
+        return file.getFileName().toString().endsWith(".jsonl");
+    }
+
+    /**
+     * Load a result file; unknown record types and fields are ignored
+     */
+    public static ResultLog read(Path file) throws IOException {
+        ResultLog log = new ResultLog();
+        int testCount = 0;
+        int lineNo = 0;
+
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank()) continue;
+
+                Map<String, String> r;
+                try {
+                    r = parseRecord(line);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(file.getFileName() + ":" + lineNo + ": " + e.getMessage(), e);
+                }
+
+                switch (r.getOrDefault("type", "")) {
+                    case "run":
+                        log.suiteName = r.getOrDefault("suite", "");
+                        log.description = r.getOrDefault("description", "");
+                        log.executedAt = r.getOrDefault("date", "");
+                        testCount = intValue(r, "tests", 0);
+                        log.comparator = r.getOrDefault("comparator", "exact");
+                        log.limits = r.getOrDefault("limits", "none");
+                        break;
+                    case "test":
+                        String verdict = r.get("verdict");
+                        log.tests.add(new TestEntry(r.get("input"), r.get("expected"), r.get("actual"),
+                                verdict == null ? null : Verdict.valueOf(verdict), r.get("error"), r.get("comparator")));
+                        break;
+                    case "program":
+                        log.programs.add(new TestSuit.ProgramResult(r.get("name"),
+                                Boolean.parseBoolean(r.get("compiled")),
+                                intValue(r, "passed", 0), intValue(r, "failed", 0), intValue(r, "timedOut", 0)));
+                        break;
+                    case "result":
+                        if (log.results == null) {
+                            List<String> names = new ArrayList<>(log.programs.size());
+                            for (TestSuit.ProgramResult pr : log.programs) names.add(pr.programName);
+                            log.results = new ResultMatrix(names, Math.max(testCount, log.tests.size()), true);
+                        }
+                        String hash = r.get("hash");
+                        String diverged = r.get("diverged");
+                        if (diverged != null) {
+                            log.results.setDivergence(intValue(r, "p", -1), intValue(r, "t", -1), Long.parseLong(diverged));
+                        }
+                        log.results.set(intValue(r, "p", -1), intValue(r, "t", -1),
+                                Verdict.valueOf(r.get("verdict")),
+                                Boolean.parseBoolean(r.get("truncated")),
+                                r.get("output"),
+                                new ResourceUsage(intValue(r, "millis", -1), intValue(r, "cpuMillis", -1),
+                                        intValue(r, "rssKb", -1)),
+                                hash == null ? 0L : Long.parseUnsignedLong(hash, 16));
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException(file.getFileName() + ": malformed result record: " + e.getMessage(), e);
+        }
+
+        if (log.results != null) {
+            log.results.seal();
+        }
+        return log;
+    }
+
+    public String getSuiteName() {
+        return suiteName;
+    }
+
+    public String getExecutedAt() {
+        return executedAt;
+    }
+
+    public List<TestEntry> getTests() {
+        return tests;
+    }
+
+    public List<TestSuit.ProgramResult> getPrograms() {
+        return programs;
+    }
+
+    public ResultMatrix getResults() {
+        return results;
+    }
+
+    /**
+     * Pass rate per program ("85.0%") or "Comp. Failed", in the form the comparison table shows
+     */
+    public Map<String, String> getPassRates() {
+        Map<String, String> rates = new LinkedHashMap<>();
+        for (TestSuit.ProgramResult pr : programs) {
+            rates.put(pr.programName, pr.compiled ? String.format("%.1f%%", pr.getPassPercentage()) : "Comp. Failed");
+        }
+        return rates;
+    }
+
+    // ---------------------- Report ----------------------
+
+    /**
+     * One "Resources:" line with the program's total wall and CPU time, its slowest test and
+     * its highest peak RSS, leaving out whatever was not measured
+     */
+    private void appendUsage(StringBuilder sb, int p) {
+        long wall = 0, cpu = 0;
+        int slowest = -1, slowestMillis = -1, rss = -1;
+        boolean anyWall = false, anyCpu = false;
+        for (int t = 0; t < results.getTestCount(); t++) {
+            int millis = results.getMillis(p, t);
+            if (millis >= 0) {
+                anyWall = true;
+                wall += millis;
+                if (millis > slowestMillis) {
+                    slowestMillis = millis;
+                    slowest = t;
+                }
+            }
+            int c = results.getCpuMillis(p, t);
+            if (c >= 0) {
+                anyCpu = true;
+                cpu += c;
+            }
+            rss = Math.max(rss, results.getPeakRssKb(p, t));
+        }
+        if (!anyWall && !anyCpu && rss < 0) return;
+
+        List<String> parts = new ArrayList<>();
+        if (anyWall) {
+            parts.add("wall " + wall + " ms");
+        }
+        if (anyCpu) {
+            parts.add("cpu " + cpu + " ms");
+        }
+        if (rss >= 0) {
+            parts.add("peak rss " + rss / 1024 + " MiB");
+        }
+        if (slowest >= 0) {
+            parts.add("slowest Test #" + (slowest + 1) + " (" + slowestMillis + " ms)");
+        }
+        sb.append("Resources: ").append(String.join(", ", parts)).append("\n");
+    }
+
+    /**
+     * Human-readable report of the run
+     */
+    public String toReport() {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("═══════════════════════════════════════════════════════════════════\n");
+        sb.append("                    TEST SUITE EXECUTION REPORT                   \n");
+        sb.append("═══════════════════════════════════════════════════════════════════\n\n");
+
+        sb.append("Suite Name: ").append(suiteName).append("\n");
+        if (!description.isEmpty()) {
+            sb.append("Description: ").append(description).append("\n");
+        }
+        sb.append("Execution Date: ").append(executedAt).append("\n");
+        if (!comparator.equals("exact")) {
+            sb.append("Output Comparison: ").append(comparator).append("\n");
+        }
+        if (!limits.equals("none")) {
+            sb.append("Resource Limits: ").append(limits).append("\n");
+        }
+        sb.append("Total Test Cases: ").append(tests.size()).append("\n");
+        sb.append("Total Programs Tested: ").append(programs.size()).append("\n\n");
+
+        sb.append("═══════════════════════════════════════════════════════════════════\n");
+        sb.append("                        PROGRAM RESULTS                           \n");
+        sb.append("═══════════════════════════════════════════════════════════════════\n\n");
+
+        for (int p = 0; p < programs.size(); p++) {
+            TestSuit.ProgramResult pr = programs.get(p);
+            sb.append("───────────────────────────────────────────────────────────────────\n");
+            sb.append("Program: ").append(pr.programName).append("\n");
+            sb.append("───────────────────────────────────────────────────────────────────\n");
+
+            if (!pr.compiled) {
+                sb.append("Status: ❌ COMPILATION FAILED\n\n");
+                continue;
+            }
+
+            sb.append("Status: ✓ Compiled Successfully\n");
+            sb.append("Tests Passed: ").append(pr.passed).append(" / ").append(tests.size()).append("\n");
+            sb.append("Tests Failed: ").append(pr.failed).append("\n");
+            if (pr.timedOut > 0) {
+                sb.append("Tests Timed Out: ").append(pr.timedOut).append("\n");
+            }
+            if (results != null) {
+                sb.append("Verdicts: ").append(results.verdictString(p)).append("\n");
+                appendUsage(sb, p);
+            }
+            sb.append("Pass Rate: ").append(String.format("%.1f%%", pr.getPassPercentage())).append("\n");
+
+            if (pr.passed == tests.size()) {
+                sb.append("★ ALL TESTS PASSED! ★\n");
+            }
+            sb.append("\n");
+        }
+
+        sb.append("═══════════════════════════════════════════════════════════════════\n");
+        sb.append("                    DETAILED TEST RESULTS                         \n");
+        sb.append("═══════════════════════════════════════════════════════════════════\n\n");
+
+        for (int i = 0; i < tests.size(); i++) {
+            TestEntry tc = tests.get(i);
+            sb.append("Test Case #").append(i + 1).append(":\n");
+            sb.append("  Input: ").append(escape(tc.input)).append("\n");
+            sb.append("  Expected: ").append(escape(tc.expected)).append("\n");
+            if (tc.comparator != null) {
+                sb.append("  Comparison: ").append(tc.comparator).append("\n");
+            }
+
+            if (results != null) {
+                int ran = 0;
+                for (int p = 0; p < results.getProgramCount(); p++) {
+                    if (results.get(p, i) != null) ran++;
+                }
+                sb.append("  Passed by: ").append(results.countForTest(i, Verdict.PASS))
+                  .append(" / ").append(ran).append(" programs\n");
+
+                for (int p = 0; p < results.getProgramCount(); p++) {
+                    Verdict v = results.get(p, i);
+                    if (v == null || v == Verdict.PASS) continue;
+                    sb.append("    ").append(v.getLabel()).append("  ").append(results.getProgramName(p));
+                    String actual = results.getOutput(p, i);
+                    if (actual != null) {
+                        sb.append(": ").append(escape(actual));
+                    }
+                    long diverged = results.getDivergence(p, i);
+                    if (diverged >= 0) {
+                        sb.append("  (diverged at char ").append(diverged).append(")");
+                    }
+                    sb.append("\n");
+                }
+            } else if (tc.actual != null) {
+                sb.append("  Actual: ").append(escape(tc.actual)).append("\n");
+                sb.append("  Status: ").append(tc.verdict != null ? tc.verdict.getLabel() : Verdict.FAIL.getLabel()).append("\n");
+            }
+
+            if (tc.error != null) {
+                sb.append("  Error: ").append(tc.error).append("\n");
+            }
+            sb.append("\n");
+        }
+
+        sb.append("═══════════════════════════════════════════════════════════════════\n");
+        sb.append("                          SUMMARY                                 \n");
+        sb.append("═══════════════════════════════════════════════════════════════════\n\n");
+
+        for (TestSuit.ProgramResult pr : programs) {
+            sb.append(String.format("%-30s", pr.programName));
+
+            if (!pr.compiled) {
+                sb.append(" : Compilation Failed ❌\n");
+            } else {
+                sb.append(String.format(" : %d/%d passed (%.1f%%) %s\n",
+                    pr.passed,
+                    tests.size(),
+                    pr.getPassPercentage(),
+                    pr.passed == tests.size() ? "✓" : ""));
+            }
+        }
+
+        sb.append("\n═══════════════════════════════════════════════════════════════════\n");
+        sb.append("                       END OF REPORT                              \n");
+        sb.append("═══════════════════════════════════════════════════════════════════\n");
+
+        return sb.toString();
+    }
+
+    private static String escape(String s) {
+        return s == null ? "" : s.replace("\n", "\\n");
+    }
+
+    // ---------------------- JSON decoding ----------------------
+
+    private static int intValue(Map<String, String> record, String key, int fallback) {
+        String v = record.get(key);
+        return v == null ? fallback : Integer.parseInt(v);
+    }
+
+    /**
+     * Parse one flat JSON object. String values are unescaped; numbers, booleans and null
+     * are returned as their literal text (null as a missing value).
+     */
+    static Map<String, String> parseRecord(String line) {
+        Map<String, String> record = new HashMap<>();
+        int[] pos = {skipSpace(line, 0)};
+        expect(line, pos, '{');
+        if (peek(line, pos) == '}') return record;
+
+        while (true) {
+            String key = readString(line, pos);
+            expect(line, pos, ':');
+            if (peek(line, pos) == '"') {
+                record.put(key, readString(line, pos));
+            } else {
+                int start = pos[0];
+                while (pos[0] < line.length() && ",} \t".indexOf(line.charAt(pos[0])) < 0) pos[0]++;
+                String literal = line.substring(start, pos[0]);
+                if (literal.isEmpty()) throw new IllegalArgumentException("missing value for \"" + key + "\"");
+                if (!literal.equals("null")) record.put(key, literal);
+            }
+            char c = peek(line, pos);
+            pos[0]++;
+            if (c == '}') return record;
+            if (c != ',') throw new IllegalArgumentException("expected ',' or '}' at column " + pos[0]);
+        }
+    }
+
+    private static String readString(String s, int[] pos) {
+        expect(s, pos, '"');
+        StringBuilder sb = null;
+        int start = pos[0];
+        while (true) {
+            if (pos[0] >= s.length()) throw new IllegalArgumentException("unterminated string");
+            char c = s.charAt(pos[0]++);
+            if (c == '"') {
+                return sb == null ? s.substring(start, pos[0] - 1) : sb.toString();
+            }
+            if (c != '\\') {
+                if (sb != null) sb.append(c);
+                continue;
+            }
+            if (sb == null) {
+                sb = new StringBuilder(s.substring(start, pos[0] - 1));
+            }
+            char e = s.charAt(pos[0]++);
+            switch (e) {
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'u':
+                    sb.append((char) Integer.parseInt(s.substring(pos[0], pos[0] + 4), 16));
+                    pos[0] += 4;
+                    break;
+                default: sb.append(e); // \" \\ \/
+            }
+        }
+    }
+
+    private static char peek(String s, int[] pos) {
+        pos[0] = skipSpace(s, pos[0]);
+        if (pos[0] >= s.length()) throw new IllegalArgumentException("unexpected end of record");
+        return s.charAt(pos[0]);
+    }
+
+    private static void expect(String s, int[] pos, char c) {
+        if (peek(s, pos) != c) throw new IllegalArgumentException("expected '" + c + "' at column " + (pos[0] + 1));
+        pos[0]++;
+    }
+
+    private static int skipSpace(String s, int i) {
+        while (i < s.length() && Character.isWhitespace(s.charAt(i))) i++;
+        return i;
+    }
+}
@@ -0,0 +1,241 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Verdicts of one suite run for every program × test case, one byte per cell, plus the
+ * resource usage and a 64-bit hash of the output of each cell.
+ *
+ * Any number of threads may write different cells while the run is in progress; once the
+ * run is over the matrix is sealed and becomes read-only. Captured outputs are kept per cell
+ * only when requested, so large runs can keep the whole verdict grid for a few bytes a cell.
+ */
+public class ResultMatrix {
+    private static final VarHandle CELLS = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    // Cell layout: low 7 bits = verdict ordinal + 1 (0 = not run), high bit = output truncated
+    private static final int TRUNCATED_BIT = 0x80;
+    private static final int VERDICT_MASK = 0x7F;
+    private static final Verdict[] VERDICTS = Verdict.values();
+
+    private final List<String> programNames;
+    private final int testCount;
+    private final byte[] cells;
+    private final int[] millis;     // wall time; -1 = not measured. Published by the cell's release write
+    private final int[] cpuMillis;
+    private final int[] peakRssKb;
+    private final long[] hashes;    // first 64 bits of the SHA-256 of the output
+    private final AtomicReferenceArray<String> outputs; // null when outputs are not retained
+    private final Map<Integer, Long> divergences = new ConcurrentHashMap<>(); // few cells have one
+    private volatile boolean sealed;
+
+    public ResultMatrix(List<String> programNames, int testCount, boolean retainOutputs) {
+        this.programNames = Collections.unmodifiableList(new ArrayList<>(programNames));
+        this.testCount = testCount;
+        this.cells = new byte[Math.multiplyExact(programNames.size(), testCount)];
+        this.millis = new int[cells.length];
+        this.cpuMillis = new int[cells.length];
+        this.peakRssKb = new int[cells.length];
+        this.hashes = new long[cells.length];
+        Arrays.fill(millis, -1);
+        Arrays.fill(cpuMillis, -1);
+        Arrays.fill(peakRssKb, -1);
+        this.outputs = retainOutputs ? new AtomicReferenceArray<>(cells.length) : null;
+        this.sealed = false;
+    }
+
+    public int getProgramCount() {
+        return programNames.size();
+    }
+
+    public int getTestCount() {
+        return testCount;
+    }
+
+    public String getProgramName(int program) {
+        return programNames.get(program);
+    }
+
+    public List<String> getProgramNames() {
+        return programNames;
+    }
+
+    public boolean isRetainingOutputs() {
+        return outputs != null;
+    }
+
+    /**
+     * Record the verdict of one cell; output is ignored unless outputs are retained
+     */
+    public void set(int program, int test, Verdict verdict, boolean truncated, String output) {
+        set(program, test, verdict, truncated, output, ResourceUsage.UNKNOWN);
+    }
+
+    /**
+     * Record the verdict and resource usage of one cell; the output is hashed even when it is not retained
+     */
+    public void set(int program, int test, Verdict verdict, boolean truncated, String output, ResourceUsage usage) {
+        set(program, test, verdict, truncated, output, usage, output == null ? 0L : hashOutput(output));
+    }
+
+    /**
+     * Record a cell whose output hash is already known, e.g. when loading a saved run
+     */
+    public void set(int program, int test, Verdict verdict, boolean truncated, String output,
+                    ResourceUsage usage, long outputHash) {
+        if (sealed) {
+            throw new IllegalStateException("Results of a finished run cannot be changed");
+        }
+        int cell = index(program, test);
+        if (outputs != null) {
+            outputs.set(cell, output);
+        }
+        millis[cell] = clamp(usage.getWallMillis());
+        cpuMillis[cell] = clamp(usage.getCpuMillis());
+        peakRssKb[cell] = clamp(usage.getPeakRssKb());
+        hashes[cell] = outputHash;
+        int value = (verdict.ordinal() + 1) | (truncated ? TRUNCATED_BIT : 0);
+        CELLS.setRelease(cells, cell, (byte) value);
+    }
+
+    /**
+     * @return the verdict, or null if this pair was never run
+     */
+    public Verdict get(int program, int test) {
+        int value = (byte) CELLS.getAcquire(cells, index(program, test)) & VERDICT_MASK;
+        return value == 0 ? null : VERDICTS[value - 1];
+    }
+
+    public boolean isTruncated(int program, int test) {
+        return ((byte) CELLS.getAcquire(cells, index(program, test)) & TRUNCATED_BIT) != 0;
+    }
+
+    /**
+     * @return the captured output, or null if it was not retained
+     */
+    public String getOutput(int program, int test) {
+        return outputs == null ? null : outputs.get(index(program, test));
+    }
+
+    /**
+     * Note where a failing cell's output stopped matching; call before {@link #set}
+     */
+    public void setDivergence(int program, int test, long offset) {
+        if (sealed) {
+            throw new IllegalStateException("Results of a finished run cannot be changed");
+        }
+        divergences.put(index(program, test), offset);
+    }
+
+    /**
+     * @return offset in the normalized output where it diverged from the expected output, or -1
+     */
+    public long getDivergence(int program, int test) {
+        return divergences.getOrDefault(index(program, test), -1L);
+    }
+
+    /**
+     * @return the run time in milliseconds, or -1 if it was not measured (e.g. a cached result)
+     */
+    public int getMillis(int program, int test) {
+        int cell = index(program, test);
+        CELLS.getAcquire(cells, cell);
+        return millis[cell];
+    }
+
+    /**
+     * @return CPU time in milliseconds, or -1 if it was not measured
+     */
+    public int getCpuMillis(int program, int test) {
+        int cell = index(program, test);
+        CELLS.getAcquire(cells, cell);
+        return cpuMillis[cell];
+    }
+
+    /**
+     * @return peak resident memory in KiB, or -1 if it was not measured
+     */
+    public int getPeakRssKb(int program, int test) {
+        int cell = index(program, test);
+        CELLS.getAcquire(cells, cell);
+        return peakRssKb[cell];
+    }
+
+    /**
+     * @return 64-bit hash of the output, 0 if the cell has no output
+     */
+    public long getOutputHash(int program, int test) {
+        int cell = index(program, test);
+        CELLS.getAcquire(cells, cell);
+        return hashes[cell];
+    }
+
+    /**
+     * The output hash stored per cell; equal outputs always give equal hashes
+     */
+    public static long hashOutput(String output) {
+        return Long.parseUnsignedLong(ContentHash.of(output).substring(0, 16), 16);
+    }
+
+    /**
+     * Verdict letters of one program, one per test case and '-' for tests that did not run, e.g. "PPFT"
+     */
+    public String verdictString(int program) {
+        StringBuilder sb = new StringBuilder(testCount);
+        for (int t = 0; t < testCount; t++) {
+            Verdict v = get(program, t);
+            sb.append(v == null ? '-' : v.getCode());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Number of test cases of a program with the given verdict
+     */
+    public int countForProgram(int program, Verdict verdict) {
+        int n = 0;
+        for (int t = 0; t < testCount; t++) {
+            if (get(program, t) == verdict) n++;
+        }
+        return n;
+    }
+
+    /**
+     * Number of programs that got the given verdict on a test case
+     */
+    public int countForTest(int test, Verdict verdict) {
+        int n = 0;
+        for (int p = 0; p < programNames.size(); p++) {
+            if (get(p, test) == verdict) n++;
+        }
+        return n;
+    }
+
+    /**
+     * Make the matrix read-only; later writes throw IllegalStateException
+     */
+    public void seal() {
+        sealed = true;
+    }
+
+    public boolean isSealed() {
+        return sealed;
+    }
+
+    private static int clamp(long value) {
+        return (int) Math.max(-1, Math.min(Integer.MAX_VALUE, value));
+    }
+
+    private int index(int program, int test) {
+        if (program < 0 || program >= programNames.size() || test < 0 || test >= testCount) {
+            throw new IndexOutOfBoundsException("No cell (" + program + ", " + test + ")");
+        }
+        return program * testCount + test;
+    }
+}
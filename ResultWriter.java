@@ -0,0 +1,166 @@
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Streams a suite run to a JSONL result file, one flat JSON object per line:
+ *
+ *   {"type":"run", ...}       suite name, description, date, the number of tests/programs,
+ *                             comparator and resource limits
+ *   {"type":"test", ...}      one per test case, in order
+ *   {"type":"program", ...}   one per program, in order, with its pass/fail counts
+ *   {"type":"result", ...}    one per program × test cell that ran: verdict, wall/CPU time,
+ *                             peak RSS, output hash
+ *
+ * Records are written in that order so {@link ResultLog} can load a file in a single pass.
+ */
+public class ResultWriter implements Closeable {
+    public static final int FORMAT_VERSION = 1;
+
+    private final BufferedWriter out;
+    private final StringBuilder line = new StringBuilder(256);
+
+    public ResultWriter(Path file) throws IOException {
+        this.out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+    }
+
+    public void writeRun(String suiteName, String description, String executedAt, int testCount, int programCount,
+                         String comparator, String limits) throws IOException {
+        begin("run");
+        field("version", FORMAT_VERSION);
+        field("suite", suiteName);
+        field("description", description);
+        field("date", executedAt);
+        field("tests", testCount);
+        field("programs", programCount);
+        field("comparator", comparator);
+        field("limits", limits);
+        end();
+    }
+
+    /**
+     * A test case; its actual output and verdict are only written when it was evaluated on its own
+     */
+    public void writeTest(int index, TestCase tc, boolean includeActual) throws IOException {
+        begin("test");
+        field("index", index);
+        field("input", tc.getInput());
+        field("expected", tc.getExpectedOutput());
+        if (includeActual && tc.getActualOutput() != null) {
+            field("actual", tc.getActualOutput());
+            field("verdict", (tc.getVerdict() != null ? tc.getVerdict() : Verdict.FAIL).name());
+        }
+        if (tc.getComparator() != null) {
+            field("comparator", tc.getComparator().getName());
+        }
+        if (tc.getErrorMessage() != null) {
+            field("error", tc.getErrorMessage());
+        }
+        end();
+    }
+
+    public void writeProgram(int index, TestSuit.ProgramResult pr) throws IOException {
+        begin("program");
+        field("index", index);
+        field("name", pr.programName);
+        field("compiled", pr.compiled);
+        field("passed", pr.passed);
+        field("failed", pr.failed);
+        field("timedOut", pr.timedOut);
+        end();
+    }
+
+    /**
+     * One cell of the matrix; cells that never ran are skipped
+     */
+    public void writeResult(ResultMatrix results, int program, int test) throws IOException {
+        Verdict verdict = results.get(program, test);
+        if (verdict == null) return;
+
+        begin("result");
+        field("p", program);
+        field("t", test);
+        field("verdict", verdict.name());
+        field("millis", results.getMillis(program, test));
+        if (results.getCpuMillis(program, test) >= 0) {
+            field("cpuMillis", results.getCpuMillis(program, test));
+        }
+        if (results.getPeakRssKb(program, test) >= 0) {
+            field("rssKb", results.getPeakRssKb(program, test));
+        }
+        field("hash", Long.toHexString(results.getOutputHash(program, test)));
+        if (results.isTruncated(program, test)) {
+            field("truncated", true);
+        }
+        long diverged = results.getDivergence(program, test);
+        if (diverged >= 0) {
+            field("diverged", diverged);
+        }
+        String output = results.getOutput(program, test);
+        if (output != null) {
+            field("output", output);
+        }
+        end();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    // ---------------------- JSON encoding ----------------------
+
+    private void begin(String type) {
+        line.setLength(0);
+        line.append("{\"type\":\"").append(type).append('"');
+    }
+
+    private void end() throws IOException {
+        line.append("}\n");
+        out.append(line);
+    }
+
+    private void field(String key, String value) {
+        line.append(",\"").append(key).append("\":");
+        appendString(line, value);
+    }
+
+    /**
+     * Append a JSON string literal (or null) to sb
+     */
+    static void appendString(StringBuilder sb, String value) {
+        if (value == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+    private void field(String key, long value) {
+        line.append(",\"").append(key).append("\":").append(value);
+    }
+
+    private void field(String key, boolean value) {
+        line.append(",\"").append(key).append("\":").append(value);
+    }
+}
@@ -0,0 +1,191 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * What came back from a single run of a student program.
+ */
+public class RunResult {
+    private final String output;
+    private final boolean timedOut;
+    private final int exitCode;
+    private final boolean outputTruncated;
+    private final ResourceUsage usage;
+    private final Boolean match;
+    private final long divergenceOffset;
+    private final Verdict limitExceeded;
+
+    public RunResult(String output, boolean timedOut, int exitCode) {
+        this(output, timedOut, exitCode, false);
+    }
+
+    public RunResult(String output, boolean timedOut, int exitCode, boolean outputTruncated) {
+        this(output, timedOut, exitCode, outputTruncated, ResourceUsage.UNKNOWN, null, -1, null);
+    }
+
+    private RunResult(String output, boolean timedOut, int exitCode, boolean outputTruncated,
+                      ResourceUsage usage, Boolean match, long divergenceOffset, Verdict limitExceeded) {
+        this.output = output;
+        this.timedOut = timedOut;
+        this.exitCode = exitCode;
+        this.outputTruncated = outputTruncated;
+        this.usage = usage;
+        this.match = match;
+        this.divergenceOffset = divergenceOffset;
+        this.limitExceeded = limitExceeded;
+    }
+
+    /**
+     * Same result with the wall-clock time the run took
+     */
+    public RunResult withElapsedMillis(long elapsedMillis) {
+        return withUsage(usage.withWallMillis(elapsedMillis));
+    }
+
+    /**
+     * Same result with the resources the run used
+     */
+    public RunResult withUsage(ResourceUsage usage) {
+        return new RunResult(output, timedOut, exitCode, outputTruncated, usage, match, divergenceOffset,
+                limitExceeded);
+    }
+
+    /**
+     * Same result, stopped for breaking a resource limit; the verdict says which one
+     */
+    public RunResult withLimitExceeded(Verdict verdict) {
+        return new RunResult(output, timedOut, exitCode, outputTruncated, usage, match, divergenceOffset, verdict);
+    }
+
+    /**
+     * Same result, already compared against the expected output while it was produced
+     */
+    public RunResult withMatch(boolean match) {
+        return new RunResult(output, timedOut, exitCode, outputTruncated, usage, match, divergenceOffset,
+                limitExceeded);
+    }
+
+    /**
+     * Result of a run that finished on its own; stderr is appended after stdout like the report expects
+     */
+    public static RunResult completed(String stdout, String stderr, int exitCode, boolean outputTruncated) {
+        StringBuilder result = new StringBuilder(stdout);
+        if (!stderr.isEmpty()) {
+            result.append("[Stderr]:\n").append(stderr);
+        }
+        return new RunResult(normalize(result.toString()), false, exitCode, outputTruncated);
+    }
+
+    public static RunResult timeout(String partialOutput, boolean outputTruncated) {
+        return new RunResult(normalize(partialOutput), true, -1, outputTruncated);
+    }
+
+    private static String normalize(String s) {
+        if (s == null) return "";
+        return s.trim().replace("\r\n", "\n");
+    }
+
+    public String getOutput() {
+        return output;
+    }
+
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    /**
+     * True when stdout or stderr went over the capture cap and was cut off
+     */
+    public boolean isOutputTruncated() {
+        return outputTruncated;
+    }
+
+    /**
+     * Same result, marked as not matching from the given offset of the normalized output on
+     */
+    public RunResult withDivergence(long offset) {
+        return new RunResult(output, timedOut, exitCode, outputTruncated, usage, false, offset, limitExceeded);
+    }
+
+    /**
+     * Whether the output matched the expected output, or null if it still has to be compared.
+     * Streamed runs set this because their output is only kept as a preview.
+     */
+    public Boolean getMatch() {
+        return match;
+    }
+
+    /**
+     * Offset in the normalized output of the first char that differs from the expected output,
+     * or -1 if unknown or the output matched
+     */
+    public long getDivergenceOffset() {
+        return divergenceOffset;
+    }
+
+    /**
+     * The limit verdict if the run broke one of the suite's resource limits, otherwise null
+     */
+    public Verdict getLimitExceeded() {
+        return limitExceeded;
+    }
+
+    /**
+     * Wall-clock time of the run, or -1 if it was not measured
+     */
+    public long getElapsedMillis() {
+        return usage.getWallMillis();
+    }
+
+    /**
+     * Wall time, CPU time and peak memory of the run, as far as they were measured
+     */
+    public ResourceUsage getUsage() {
+        return usage;
+    }
+
+    // ---------------------- Wire Format ----------------------
+
+    /**
+     * Frame sent back by worker nodes: int length + UTF-8 bytes output, boolean timedOut, int exitCode,
+     * boolean truncated, long wall/cpu/rss, byte match (-1 unknown, 0, 1), long divergenceOffset,
+     * UTF name of the broken limit or ""
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        byte[] bytes = output.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        out.writeBoolean(timedOut);
+        out.writeInt(exitCode);
+        out.writeBoolean(outputTruncated);
+        out.writeLong(usage.getWallMillis());
+        out.writeLong(usage.getCpuMillis());
+        out.writeLong(usage.getPeakRssKb());
+        out.writeByte(match == null ? -1 : match ? 1 : 0);
+        out.writeLong(divergenceOffset);
+        out.writeUTF(limitExceeded == null ? "" : limitExceeded.name());
+    }
+
+    static RunResult readFrom(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        boolean timedOut = in.readBoolean();
+        int exitCode = in.readInt();
+        boolean truncated = in.readBoolean();
+        ResourceUsage usage = new ResourceUsage(in.readLong(), in.readLong(), in.readLong());
+        byte match = in.readByte();
+        long divergenceOffset = in.readLong();
+        String limit = in.readUTF();
+        try {
+            return new RunResult(new String(bytes, StandardCharsets.UTF_8), timedOut, exitCode, truncated, usage,
+                    match < 0 ? null : match == 1, divergenceOffset, limit.isEmpty() ? null : Verdict.valueOf(limit));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unknown limit verdict: " + limit);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps test suites on disk in test_suites/ so they survive restarts (JSON lines):
+ *
+ *   suites.idx            one "suite" record per suite: settings, dates, test count and file name
+ *   &lt;name&gt;-&lt;hash&gt;.jsonl   the same "suite" record, then one "test" record per test case
+ *
+ * Opening the store only reads the index. A suite's test cases are read from its own file the
+ * first time they are used, so a large library starts instantly and only the suites that are
+ * actually opened take up heap. If the index is missing it is rebuilt from the first line of
+ * every suite file.
+ */
+public class SuiteStore {
+    public static final String DEFAULT_DIRECTORY = "test_suites";
+    public static final String INDEX_FILE = "suites.idx";
+
+    private final Path directory;
+    private final Path indexFile;
+    private final Map<String, String> index = new LinkedHashMap<>(); // suite name -> its "suite" record
+
+    public SuiteStore(Path directory) {
+        this.directory = directory;
+        this.indexFile = directory.resolve(INDEX_FILE);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    // ---------------------- Loading ----------------------
+
+    /**
+     * Read every suite's settings from the index; test cases are loaded lazily
+     */
+    public synchronized ListOfTestSuites loadAll() {
+        ListOfTestSuites suites = new ListOfTestSuites();
+        index.clear();
+        try {
+            if (!Files.exists(indexFile)) {
+                if (!Files.isDirectory(directory)) return suites;
+                rebuildIndex();
+            }
+            for (String line : Files.readAllLines(indexFile, StandardCharsets.UTF_8)) {
+                if (line.isBlank()) continue;
+                try {
+                    Map<String, String> r = ResultLog.parseRecord(line);
+                    TestSuit suite = restoreSuite(r);
+                    index.put(suite.getName(), line);
+                    suites.setSuite(suite);
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Warning: skipping malformed suite record: " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not read test suites from " + directory + ": " + e.getMessage());
+        }
+        return suites;
+    }
+
+    private void rebuildIndex() throws IOException {
+        List<String> records = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.jsonl")) {
+            for (Path f : files) {
+                try (BufferedReader r = Files.newBufferedReader(f, StandardCharsets.UTF_8)) {
+                    String first = r.readLine();
+                    if (first != null && "suite".equals(ResultLog.parseRecord(first).get("type"))) {
+                        records.add(first);
+                    }
+                } catch (IOException | IllegalArgumentException e) {
+                    System.err.println("Warning: skipping " + f.getFileName() + " in suite store: " + e.getMessage());
+                }
+            }
+        }
+        records.sort(null);
+        writeAtomically(indexFile, records.isEmpty() ? "" : String.join("\n", records) + "\n");
+    }
+
+    private TestSuit restoreSuite(Map<String, String> r) {
+        String name = r.get("name");
+        String file = r.get("file");
+        if (name == null || file == null) {
+            throw new IllegalArgumentException("suite record without name or file");
+        }
+        Path suiteFile = directory.resolve(file);
+        int count = r.containsKey("tests") ? Integer.parseInt(r.get("tests")) : 0;
+
+        TestSuit suite = new TestSuit(name, ListOfTestCase.lazy(count, () -> readTestCases(suiteFile)));
+        suite.setDescription(r.getOrDefault("description", ""));
+        if (r.containsKey("created")) suite.setCreatedDate(LocalDateTime.parse(r.get("created")));
+        if (r.containsKey("lastRun")) suite.setLastRunDate(LocalDateTime.parse(r.get("lastRun")));
+        if (r.containsKey("timeout")) suite.setTimeoutMillis(Long.parseLong(r.get("timeout")));
+        if (r.containsKey("maxOutput")) suite.setMaxOutputBytes(Integer.parseInt(r.get("maxOutput")));
+        if (r.containsKey("retainOutputs")) suite.setRetainOutputs(Boolean.parseBoolean(r.get("retainOutputs")));
+        if (r.containsKey("comparator")) suite.setComparator(OutputComparator.forName(r.get("comparator")));
+        if (r.containsKey("limits")) suite.setResourceLimits(ResourceLimits.parse(r.get("limits")));
+        return suite;
+    }
+
+    /**
+     * Read the test cases of one suite file, skipping its leading suite record
+     */
+    private static List<TestCase> readTestCases(Path suiteFile) {
+        List<TestCase> cases = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(suiteFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) continue;
+                Map<String, String> r = ResultLog.parseRecord(line);
+                if (!"test".equals(r.get("type"))) continue;
+
+                TestCase tc = r.containsKey("inputFile")
+                        ? TestCase.restoreFileBacked(Paths.get(r.get("inputFile")), Paths.get(r.get("expectedFile")))
+                        : new TestCase(r.getOrDefault("input", ""), r.getOrDefault("expected", ""));
+                if (r.containsKey("timeout")) tc.setTimeoutMillis(Long.parseLong(r.get("timeout")));
+                if (r.containsKey("comparator")) tc.setComparator(OutputComparator.forName(r.get("comparator")));
+                cases.add(tc);
+            }
+        } catch (IOException e) {
+            // Returning fewer cases would let the next save overwrite the file with them
+            throw new UncheckedIOException("Could not load test cases from " + suiteFile, e);
+        }
+        return cases;
+    }
+
+    // ---------------------- Saving ----------------------
+
+    /**
+     * Write a suite with its test cases. A suite whose test cases were never loaded cannot have
+     * changed them, so only its settings are written.
+     */
+    public synchronized void save(TestSuit suite) throws IOException {
+        if (!suite.getTestCases().isLoaded()) {
+            saveSettings(suite);
+            return;
+        }
+        Files.createDirectories(directory);
+        String file = fileNameFor(suite.getName());
+        String record = suiteRecord(suite, file);
+
+        StringBuilder sb = new StringBuilder(record).append('\n');
+        for (TestCase tc : suite.getTestCases().asList()) {
+            appendTest(sb, tc);
+        }
+        writeAtomically(directory.resolve(file), sb.toString());
+
+        index.put(suite.getName(), record);
+        writeIndex();
+    }
+
+    /**
+     * Write only a suite's settings (description, limits, last run date, ...) to the index.
+     * The copy at the top of the suite file is refreshed by the next {@link #save}.
+     */
+    public synchronized void saveSettings(TestSuit suite) throws IOException {
+        Files.createDirectories(directory);
+        index.put(suite.getName(), suiteRecord(suite, fileNameFor(suite.getName())));
+        writeIndex();
+    }
+
+    /**
+     * Remove a suite and its test cases from disk
+     */
+    public synchronized void delete(String name) throws IOException {
+        if (index.remove(name) == null) return;
+        Files.deleteIfExists(directory.resolve(fileNameFor(name)));
+        writeIndex();
+    }
+
+    private void writeIndex() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (String record : index.values()) {
+            sb.append(record).append('\n');
+        }
+        writeAtomically(indexFile, sb.toString());
+    }
+
+    private static String suiteRecord(TestSuit suite, String file) {
+        StringBuilder sb = new StringBuilder("{\"type\":\"suite\",\"name\":");
+        ResultWriter.appendString(sb, suite.getName());
+        sb.append(",\"file\":");
+        ResultWriter.appendString(sb, file);
+        sb.append(",\"description\":");
+        ResultWriter.appendString(sb, suite.getDescription());
+        sb.append(",\"created\":");
+        ResultWriter.appendString(sb, suite.getCreatedDate().toString());
+        if (suite.getLastRunDate() != null) {
+            sb.append(",\"lastRun\":");
+            ResultWriter.appendString(sb, suite.getLastRunDate().toString());
+        }
+        sb.append(",\"tests\":").append(suite.getTotalCount())
+          .append(",\"timeout\":").append(suite.getTimeoutMillis())
+          .append(",\"maxOutput\":").append(suite.getMaxOutputBytes())
+          .append(",\"retainOutputs\":").append(suite.isRetainingOutputs())
+          .append(",\"comparator\":");
+        ResultWriter.appendString(sb, suite.getComparator().getName());
+        sb.append(",\"limits\":");
+        ResultWriter.appendString(sb, suite.getResourceLimits().toString());
+        return sb.append('}').toString();
+    }
+
+    private static void appendTest(StringBuilder sb, TestCase tc) {
+        sb.append("{\"type\":\"test\"");
+        if (tc.isFileBacked()) {
+            sb.append(",\"inputFile\":");
+            ResultWriter.appendString(sb, tc.getInputFile().toString());
+            sb.append(",\"expectedFile\":");
+            ResultWriter.appendString(sb, tc.getExpectedFile().toString());
+        } else {
+            sb.append(",\"input\":");
+            ResultWriter.appendString(sb, tc.getInput());
+            sb.append(",\"expected\":");
+            ResultWriter.appendString(sb, tc.getExpectedOutput());
+        }
+        if (tc.getTimeoutMillis() > 0) {
+            sb.append(",\"timeout\":").append(tc.getTimeoutMillis());
+        }
+        if (tc.getComparator() != null) {
+            sb.append(",\"comparator\":");
+            ResultWriter.appendString(sb, tc.getComparator().getName());
+        }
+        sb.append("}\n");
+    }
+
+    /**
+     * Readable, file-system safe name; the hash keeps names that differ only in
+     * special characters apart
+     */
+    static String fileNameFor(String suiteName) {
+        String safe = suiteName.replaceAll("[^A-Za-z0-9_-]", "_");
+        if (safe.length() > 40) safe = safe.substring(0, 40);
+        return safe + "-" + ContentHash.of(suiteName).substring(0, 8) + ".jsonl";
+    }
+
+    /**
+     * Replace a file so that readers and crashes only ever see the old or the new content
+     */
+    private static void writeAtomically(Path file, String content) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tmp, content.getBytes(StandardCharsets.UTF_8));
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (java.nio.file.AtomicMoveNotSupportedException e) {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -1,26 +1,85 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 public class TestCase {
     private final String input;
     private final String expectedOutput;
+    private final Path inputFile;    // file-backed test cases only
+    private final Path expectedFile;
     private String actualOutput;
-    private boolean passed;
+    private Verdict verdict;
     private String errorMessage;
+    private volatile long timeoutMillis; // 0 = use the suite's timeout
+    private volatile OutputComparator comparator; // null = use the suite's comparator
 
     public TestCase(String input, String expectedOutput) {
+        this(input, expectedOutput, null, null);
+    }
+
+    private TestCase(String input, String expectedOutput, Path inputFile, Path expectedFile) {
         this.input = input;
         this.expectedOutput = expectedOutput;
+        this.inputFile = inputFile;
+        this.expectedFile = expectedFile;
         this.actualOutput = null;
-        this.passed = false;
+        this.verdict = null;
         this.errorMessage = null;
+        this.timeoutMillis = 0;
+    }
+
+    /**
+     * A test case whose input and expected output stay on disk. The input is streamed to the
+     * program and its output is compared against the expected file in chunks while it runs.
+     */
+    public static TestCase fromFiles(Path inputFile, Path expectedFile) {
+        if (!Files.isRegularFile(inputFile)) {
+            throw new IllegalArgumentException("Input file not found: " + inputFile);
+        }
+        if (!Files.isRegularFile(expectedFile)) {
+            throw new IllegalArgumentException("Expected output file not found: " + expectedFile);
+        }
+        Path in = inputFile.toAbsolutePath().normalize();
+        Path expected = expectedFile.toAbsolutePath().normalize();
+        return new TestCase("[file] " + in, "[file] " + expected, in, expected);
+    }
+
+    /**
+     * A file-backed test case read back from the suite store; the files are not required to
+     * exist yet, a missing file shows up when the test runs
+     */
+    static TestCase restoreFileBacked(Path inputFile, Path expectedFile) {
+        return new TestCase("[file] " + inputFile, "[file] " + expectedFile, inputFile, expectedFile);
     }
 
+    /**
+     * The input text; for file-backed test cases a "[file] path" label
+     */
     public String getInput() {
         return input;
     }
 
+    /**
+     * The expected output; for file-backed test cases a "[file] path" label
+     */
     public String getExpectedOutput() {
         return expectedOutput;
     }
 
+    public boolean isFileBacked() {
+        return inputFile != null;
+    }
+
+    public Path getInputFile() {
+        return inputFile;
+    }
+
+    public Path getExpectedFile() {
+        return expectedFile;
+    }
+
     public String getActualOutput() {
         return actualOutput;
     }
@@ -30,11 +89,47 @@ public class TestCase {
     }
 
     public boolean isPassed() {
-        return passed;
+        return verdict == Verdict.PASS;
     }
 
     public void setPassed(boolean passed) {
-        this.passed = passed;
+        this.verdict = passed ? Verdict.PASS : Verdict.FAIL;
+    }
+
+    public Verdict getVerdict() {
+        return verdict;
+    }
+
+    public void setVerdict(Verdict verdict) {
+        this.verdict = verdict;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * Per-test wall-clock limit in milliseconds; 0 falls back to the suite's timeout
+     */
+    public void setTimeoutMillis(long timeoutMillis) {
+        if (timeoutMillis < 0) {
+            throw new IllegalArgumentException("Timeout cannot be negative: " + timeoutMillis);
+        }
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * @return this test case's comparator, or null if it uses its suite's
+     */
+    public OutputComparator getComparator() {
+        return comparator;
+    }
+
+    /**
+     * How this test case's output is compared; null falls back to the suite's comparator
+     */
+    public void setComparator(OutputComparator comparator) {
+        this.comparator = comparator;
     }
 
     public String getErrorMessage() {
@@ -50,14 +145,31 @@ public class TestCase {
      */
     public void evaluate(String actualOutput) {
         this.actualOutput = actualOutput;
-        String normalizedActual = normalize(actualOutput);
-        String normalizedExpected = normalize(expectedOutput);
-        this.passed = normalizedActual.equals(normalizedExpected);
+        setPassed(matches(actualOutput));
+    }
+
+    /**
+     * Check an output against the expected output without changing this test case,
+     * using this test case's comparator or EXACT
+     */
+    public boolean matches(String actualOutput) {
+        return matches(actualOutput, comparator != null ? comparator : OutputComparator.EXACT);
     }
 
-    private String normalize(String s) {
-        if (s == null) return "";
-        return s.trim().replace("\r\n", "\n");
+    /**
+     * Check an output against the expected output with the given comparator
+     */
+    public boolean matches(String actualOutput, OutputComparator comparator) {
+        if (!isFileBacked()) {
+            return comparator.matches(actualOutput, expectedOutput);
+        }
+        try (Reader expected = Files.newBufferedReader(expectedFile, StandardCharsets.UTF_8)) {
+            return comparator.divergence(CharScanner.of(actualOutput), CharScanner.of(expected), Long.MAX_VALUE)
+                    == OutputComparator.MATCH;
+        } catch (IOException e) {
+            System.err.println("Warning: could not read expected output " + expectedFile + ": " + e.getMessage());
+            return false;
+        }
     }
 
     /**
@@ -65,7 +177,7 @@ public class TestCase {
      */
     public void reset() {
         this.actualOutput = null;
-        this.passed = false;
+        this.verdict = null;
         this.errorMessage = null;
     }
 
@@ -83,7 +195,7 @@ public class TestCase {
         sb.append("Expected: \"").append(expectedOutput).append("\"\n");
         if (actualOutput != null) {
             sb.append("Actual: \"").append(actualOutput).append("\"\n");
-            sb.append("Status: ").append(passed ? "PASS" : "FAIL").append("\n");
+            sb.append("Status: ").append(verdict != null ? verdict.name() : "FAIL").append("\n");
         }
         if (errorMessage != null) {
             sb.append("Error: ").append(errorMessage).append("\n");
@@ -4,24 +4,45 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+/**
+ * A named list of test cases with the settings its runs use. Settings may be changed from the UI
+ * while a run is in progress; runs work on a {@link #snapshot()} and so are not affected.
+ */
 public class TestSuit {
     private final String name;
     private final ListOfTestCase testCases;
-    private String description;
-    private LocalDateTime createdDate;
-    private LocalDateTime lastRunDate;
-    private int passedCount;
-    private int failedCount;
+    private volatile String description;
+    private volatile LocalDateTime createdDate;
+    private volatile LocalDateTime lastRunDate;
+    private volatile int passedCount;
+    private volatile int failedCount;
+    private volatile long timeoutMillis;
+    private volatile int maxOutputBytes;
+    private volatile boolean retainOutputs;
+    private volatile OutputComparator comparator;
+    private volatile ResourceLimits resourceLimits;
     
-    // Store results per program
-    private Map<String, ProgramResult> programResults;
+    // Store results per program; replaced as a whole when a run is adopted
+    private volatile Map<String, ProgramResult> programResults;
+    // Every program × test verdict of the last run
+    private volatile ResultMatrix lastResults;
     
     private static final String RESULTS_DIR = "test_results";
+    public static final long DEFAULT_TIMEOUT_MILLIS = 10_000;
+    public static final int DEFAULT_MAX_OUTPUT_BYTES = 1024 * 1024;
 
     public TestSuit(String name, ListOfTestCase testCases) {
+        this(name, testCases, true);
+    }
+
+    private TestSuit(String name, ListOfTestCase testCases, boolean createResultsDirectory) {
         this.name = name;
         this.testCases = testCases;
         this.description = "";
@@ -29,7 +50,13 @@ public class TestSuit {
         this.lastRunDate = null;
         this.passedCount = 0;
         this.failedCount = 0;
-        this.programResults = new HashMap<>();
+        this.timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+        this.maxOutputBytes = DEFAULT_MAX_OUTPUT_BYTES;
+        this.retainOutputs = true;
+        this.comparator = OutputComparator.EXACT;
+        this.resourceLimits = ResourceLimits.NONE;
+        this.programResults = new LinkedHashMap<>();
+        if (!createResultsDirectory) return;
         
         // Ensure results directory exists
         try {
@@ -42,6 +69,41 @@ public class TestSuit {
         }
     }
 
+    /**
+     * Frozen copy of this suite for one run: same settings, a read-only snapshot of the test
+     * cases, and no results. Record the run on the copy and hand it back with {@link #adoptRun}.
+     */
+    public TestSuit snapshot() {
+        TestSuit copy = new TestSuit(name, testCases.snapshot(), false);
+        copy.description = description;
+        copy.createdDate = createdDate;
+        copy.lastRunDate = lastRunDate;
+        copy.timeoutMillis = timeoutMillis;
+        copy.maxOutputBytes = maxOutputBytes;
+        copy.retainOutputs = retainOutputs;
+        copy.comparator = comparator;
+        copy.resourceLimits = resourceLimits;
+        return copy;
+    }
+
+    /**
+     * A suite that only exists to grade work shipped to a worker node; it never creates test_results
+     */
+    static TestSuit detached(String name, ListOfTestCase testCases) {
+        return new TestSuit(name, testCases, false);
+    }
+
+    /**
+     * Take over the results of a run recorded on a {@link #snapshot()} of this suite
+     */
+    public synchronized void adoptRun(TestSuit run) {
+        programResults = new LinkedHashMap<>(run.programResults);
+        lastResults = run.lastResults;
+        passedCount = run.passedCount;
+        failedCount = run.failedCount;
+        lastRunDate = run.lastRunDate;
+    }
+
     public String getName() {
         return name;
     }
@@ -62,6 +124,10 @@ public class TestSuit {
         return createdDate;
     }
 
+    public void setCreatedDate(LocalDateTime createdDate) {
+        this.createdDate = createdDate;
+    }
+
     public LocalDateTime getLastRunDate() {
         return lastRunDate;
     }
@@ -70,6 +136,95 @@ public class TestSuit {
         this.lastRunDate = lastRunDate;
     }
 
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * Wall-clock limit for each test case that does not set its own timeout
+     */
+    public void setTimeoutMillis(long timeoutMillis) {
+        if (timeoutMillis <= 0) {
+            throw new IllegalArgumentException("Timeout must be positive: " + timeoutMillis);
+        }
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public int getMaxOutputBytes() {
+        return maxOutputBytes;
+    }
+
+    /**
+     * Cap on how much of stdout (and, separately, stderr) is kept per test run
+     */
+    public void setMaxOutputBytes(int maxOutputBytes) {
+        if (maxOutputBytes <= 0) {
+            throw new IllegalArgumentException("Output cap must be positive: " + maxOutputBytes);
+        }
+        this.maxOutputBytes = maxOutputBytes;
+    }
+
+    public boolean isRetainingOutputs() {
+        return retainOutputs;
+    }
+
+    /**
+     * Whether runs keep every program's output for every test (for the report), or only verdicts
+     */
+    public void setRetainOutputs(boolean retainOutputs) {
+        this.retainOutputs = retainOutputs;
+    }
+
+    public ResultMatrix getLastResults() {
+        return lastResults;
+    }
+
+    public void setLastResults(ResultMatrix lastResults) {
+        this.lastResults = lastResults;
+    }
+
+    /**
+     * Timeout that applies to the given test case of this suite
+     */
+    public long getTimeoutFor(TestCase tc) {
+        return tc.getTimeoutMillis() > 0 ? tc.getTimeoutMillis() : timeoutMillis;
+    }
+
+    public OutputComparator getComparator() {
+        return comparator;
+    }
+
+    /**
+     * How outputs are compared for test cases that do not set their own comparator
+     */
+    public void setComparator(OutputComparator comparator) {
+        if (comparator == null) {
+            throw new IllegalArgumentException("Comparator cannot be null");
+        }
+        this.comparator = comparator;
+    }
+
+    /**
+     * Comparator that applies to the given test case of this suite
+     */
+    public OutputComparator getComparatorFor(TestCase tc) {
+        return tc.getComparator() != null ? tc.getComparator() : comparator;
+    }
+
+    public ResourceLimits getResourceLimits() {
+        return resourceLimits;
+    }
+
+    /**
+     * Heap, stack, output and child-process limits for every run of this suite
+     */
+    public void setResourceLimits(ResourceLimits resourceLimits) {
+        if (resourceLimits == null) {
+            throw new IllegalArgumentException("Resource limits cannot be null, use ResourceLimits.NONE");
+        }
+        this.resourceLimits = resourceLimits;
+    }
+
     public int getPassedCount() {
         return passedCount;
     }
@@ -83,11 +238,23 @@ public class TestSuit {
     }
 
     /**
-     * Calculate and update pass/fail counts based on test case results
+     * Calculate and update pass/fail counts. After a suite run these count every
+     * program × test cell; otherwise they come from individually evaluated test cases.
      */
     public void updateStatistics() {
         passedCount = 0;
         failedCount = 0;
+
+        if (lastResults != null) {
+            for (int t = 0; t < lastResults.getTestCount(); t++) {
+                for (int p = 0; p < lastResults.getProgramCount(); p++) {
+                    Verdict v = lastResults.get(p, t);
+                    if (v == Verdict.PASS) passedCount++;
+                    else if (v != null) failedCount++;
+                }
+            }
+            return;
+        }
         
         for (TestCase tc : testCases.asList()) {
             if (tc.getActualOutput() != null) {
@@ -103,14 +270,15 @@ public class TestSuit {
     /**
      * Reset all test cases in this suite
      */
-    public void resetAllTestCases() {
+    public synchronized void resetAllTestCases() {
         for (TestCase tc : testCases.asList()) {
             tc.reset();
         }
         passedCount = 0;
         failedCount = 0;
         lastRunDate = null;
-        programResults.clear();
+        programResults = new LinkedHashMap<>();
+        lastResults = null;
     }
 
     /**
@@ -123,30 +291,62 @@ public class TestSuit {
     }
 
     /**
-     * Check if all test cases passed
+     * Check if all test cases passed (for every program, after a suite run)
      */
     public boolean allTestsPassed() {
-        return failedCount == 0 && passedCount == testCases.size();
+        int expected = lastResults != null ? lastResults.getProgramCount() * lastResults.getTestCount() : testCases.size();
+        return failedCount == 0 && passedCount == expected;
     }
     
     /**
      * Store program result
      */
     public void storeProgramResult(String programName, boolean compiled, int passed, int failed) {
-        programResults.put(programName, new ProgramResult(programName, compiled, passed, failed));
+        storeProgramResult(programName, compiled, passed, failed, 0);
+    }
+
+    /**
+     * Store program result; timedOut counts the failures that were timeouts
+     */
+    public synchronized void storeProgramResult(String programName, boolean compiled, int passed, int failed, int timedOut) {
+        programResults.put(programName, new ProgramResult(programName, compiled, passed, failed, timedOut));
     }
     
     /**
-     * Get program results
+     * Get program results (a copy)
      */
-    public Map<String, ProgramResult> getProgramResults() {
-        return programResults;
+    public synchronized Map<String, ProgramResult> getProgramResults() {
+        return new LinkedHashMap<>(programResults);
     }
     
     /**
-     * Save the test suite results to a text file
+     * Directory that result files and the run history are written to
+     */
+    public static Path getResultsDirectory() {
+        return Paths.get(RESULTS_DIR);
+    }
+
+    /**
+     * JSONL result file of the last run, or null if the suite has not been run
+     */
+    public Path getLastResultFile() {
+        LocalDateTime runDate = lastRunDate;
+        if (runDate == null) return null;
+        String timestamp = runDate.format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        return Paths.get(RESULTS_DIR, String.format("%s_%s.jsonl", name, timestamp));
+    }
+
+    /**
+     * Save the test suite results: a JSONL result file, and a text report rendered from it
      */
     public boolean saveResults() {
+        return saveResults(null);
+    }
+
+    /**
+     * Save the test suite results and record the run in the given history (if not null)
+     */
+    public boolean saveResults(ResultHistory history) {
         if (lastRunDate == null) {
             System.err.println("Cannot save results: test suite has not been executed yet.");
             return false;
@@ -154,11 +354,21 @@ public class TestSuit {
         
         try {
             String timestamp = lastRunDate.format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-            String filename = String.format("%s_%s.txt", name, timestamp);
-            Path filePath = Paths.get(RESULTS_DIR, filename);
-            
-            String report = generateResultReport();
+            Path logPath = getLastResultFile();
+            writeResultLog(logPath);
+
+            String report = ResultLog.read(logPath).toReport();
+            Path filePath = Paths.get(RESULTS_DIR, String.format("%s_%s.txt", name, timestamp));
             Files.write(filePath, report.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+
+            if (history != null) {
+                List<String> testKeys = new ArrayList<>();
+                for (TestCase tc : testCases.asList()) {
+                    testKeys.add(ResultHistory.testKey(tc.getInput(), tc.getExpectedOutput()));
+                }
+                history.append(name, timestamp, logPath.getFileName().toString(), programResults.values(),
+                        testKeys, lastResults);
+            }
             
             return true;
         } catch (IOException e) {
@@ -166,95 +376,49 @@ public class TestSuit {
             return false;
         }
     }
-    
+
     /**
-     * Generate a human-readable report of the test results
+     * Stream the last run to a JSONL result file (see {@link ResultWriter} for the layout)
      */
-    private String generateResultReport() {
-        StringBuilder sb = new StringBuilder();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-        
-        sb.append("═══════════════════════════════════════════════════════════════════\n");
-        sb.append("                    TEST SUITE EXECUTION REPORT                   \n");
-        sb.append("═══════════════════════════════════════════════════════════════════\n\n");
-        
-        sb.append("Suite Name: ").append(name).append("\n");
-        if (!description.isEmpty()) {
-            sb.append("Description: ").append(description).append("\n");
+    private synchronized void writeResultLog(Path file) throws IOException {
+        List<TestCase> tests = testCases.asList();
+        // Programs are written in matrix row order so result records can refer to them by row
+        List<ProgramResult> programs = new ArrayList<>();
+        Set<String> rows = new HashSet<>();
+        if (lastResults != null) {
+            rows.addAll(lastResults.getProgramNames());
+            for (String program : lastResults.getProgramNames()) {
+                ProgramResult pr = programResults.get(program);
+                programs.add(pr != null ? pr : new ProgramResult(program, false, 0, 0, 0));
+            }
         }
-        sb.append("Execution Date: ").append(lastRunDate.format(formatter)).append("\n");
-        sb.append("Total Test Cases: ").append(testCases.size()).append("\n");
-        sb.append("Total Programs Tested: ").append(programResults.size()).append("\n\n");
-        
-        sb.append("═══════════════════════════════════════════════════════════════════\n");
-        sb.append("                        PROGRAM RESULTS                           \n");
-        sb.append("═══════════════════════════════════════════════════════════════════\n\n");
-        
         for (ProgramResult pr : programResults.values()) {
-            sb.append("───────────────────────────────────────────────────────────────────\n");
-            sb.append("Program: ").append(pr.programName).append("\n");
-            sb.append("───────────────────────────────────────────────────────────────────\n");
-            
-            if (!pr.compiled) {
-                sb.append("Status: ❌ COMPILATION FAILED\n\n");
-                continue;
+            if (!rows.contains(pr.programName)) {
+                programs.add(pr);
             }
-            
-            sb.append("Status: ✓ Compiled Successfully\n");
-            sb.append("Tests Passed: ").append(pr.passed).append(" / ").append(testCases.size()).append("\n");
-            sb.append("Tests Failed: ").append(pr.failed).append("\n");
-            sb.append("Pass Rate: ").append(String.format("%.1f%%", pr.getPassPercentage())).append("\n");
-            
-            if (pr.passed == testCases.size()) {
-                sb.append("★ ALL TESTS PASSED! ★\n");
-            }
-            sb.append("\n");
         }
-        
-        sb.append("═══════════════════════════════════════════════════════════════════\n");
-        sb.append("                    DETAILED TEST RESULTS                         \n");
-        sb.append("═══════════════════════════════════════════════════════════════════\n\n");
-        
-        for (int i = 0; i < testCases.size(); i++) {
-            TestCase tc = testCases.get(i);
-            sb.append("Test Case #").append(i + 1).append(":\n");
-            sb.append("  Input: ").append(tc.getInput().replace("\n", "\\n")).append("\n");
-            sb.append("  Expected: ").append(tc.getExpectedOutput().replace("\n", "\\n")).append("\n");
-            
-            if (tc.getActualOutput() != null) {
-                sb.append("  Actual: ").append(tc.getActualOutput().replace("\n", "\\n")).append("\n");
-                sb.append("  Status: ").append(tc.isPassed() ? "✓ PASS" : "✗ FAIL").append("\n");
+
+        try (ResultWriter out = new ResultWriter(file)) {
+            out.writeRun(name, description,
+                    lastRunDate.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")),
+                    tests.size(), programs.size(), comparator.getName(), resourceLimits.toString());
+
+            for (int i = 0; i < tests.size(); i++) {
+                out.writeTest(i, tests.get(i), lastResults == null);
             }
-            
-            if (tc.getErrorMessage() != null) {
-                sb.append("  Error: ").append(tc.getErrorMessage()).append("\n");
+
+            for (int p = 0; p < programs.size(); p++) {
+                out.writeProgram(p, programs.get(p));
             }
-            sb.append("\n");
-        }
-        
-        sb.append("═══════════════════════════════════════════════════════════════════\n");
-        sb.append("                          SUMMARY                                 \n");
-        sb.append("═══════════════════════════════════════════════════════════════════\n\n");
-        
-        for (ProgramResult pr : programResults.values()) {
-            sb.append(String.format("%-30s", pr.programName));
-            
-            if (!pr.compiled) {
-                sb.append(" : Compilation Failed ❌\n");
-            } else {
-                sb.append(String.format(" : %d/%d passed (%.1f%%) %s\n",
-                    pr.passed,
-                    testCases.size(),
-                    pr.getPassPercentage(),
-                    pr.passed == testCases.size() ? "✓" : ""));
+
+            if (lastResults != null) {
+                for (int p = 0; p < lastResults.getProgramCount(); p++) {
+                    for (int t = 0; t < lastResults.getTestCount(); t++) {
+                        out.writeResult(lastResults, p, t);
+                    }
+                }
             }
         }
-        
-        sb.append("\n═══════════════════════════════════════════════════════════════════\n");
-        sb.append("                       END OF REPORT                              \n");
-        sb.append("═══════════════════════════════════════════════════════════════════\n");
-        
-        return sb.toString();
     }
 
     @Override
@@ -295,12 +459,14 @@ public class TestSuit {
         final boolean compiled;
         final int passed;
         final int failed;
+        final int timedOut; // subset of failed
         
-        public ProgramResult(String programName, boolean compiled, int passed, int failed) {
+        public ProgramResult(String programName, boolean compiled, int passed, int failed, int timedOut) {
             this.programName = programName;
             this.compiled = compiled;
             this.passed = passed;
             this.failed = failed;
+            this.timedOut = timedOut;
         }
         
         public double getPassPercentage() {
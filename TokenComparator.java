@@ -0,0 +1,162 @@
+import java.io.IOException;
+
+/**
+ * Compares whitespace-separated tokens in order; how much whitespace separates them does not
+ * matter. With an epsilon, two tokens that are both plain decimal numbers match when they
+ * differ by at most epsilon, absolutely or relative to the expected value.
+ *
+ * Tokens are compared char by char as they are read. Only for numeric comparison are the first
+ * {@link #NUMBER_CHARS} chars of a token kept, in a buffer that is reused for every token.
+ */
+public class TokenComparator implements OutputComparator {
+    static final int NUMBER_CHARS = 64;
+
+    private final double epsilon; // NaN = tokens must be identical
+
+    public TokenComparator(double epsilon) {
+        this.epsilon = epsilon;
+    }
+
+    @Override
+    public String getName() {
+        return Double.isNaN(epsilon) ? "tokens" : "numeric:" + epsilon;
+    }
+
+    @Override
+    public long divergence(CharScanner actual, CharScanner expected, long marginChars) throws IOException {
+        char[] actualToken = Double.isNaN(epsilon) ? null : new char[NUMBER_CHARS];
+        char[] expectedToken = actualToken == null ? null : new char[NUMBER_CHARS];
+
+        while (true) {
+            while (CharScanner.isSpace(expected.peek())) expected.read();
+            long run = 0;
+            while (CharScanner.isSpace(actual.peek())) {
+                actual.read();
+                if (++run > marginChars) return actual.position();
+            }
+
+            long start = actual.position();
+            if (expected.peek() == -1 || actual.peek() == -1) {
+                return expected.peek() == actual.peek() ? MATCH : start;
+            }
+
+            boolean same = actualToken == null
+                    ? sameToken(actual, expected)
+                    : sameNumberOrToken(actual, expected, actualToken, expectedToken);
+            if (!same) return start;
+        }
+    }
+
+    /**
+     * Consume one token from each side while they agree
+     */
+    private static boolean sameToken(CharScanner actual, CharScanner expected) throws IOException {
+        while (true) {
+            int a = actual.peek();
+            int e = expected.peek();
+            boolean actualEnd = a == -1 || a <= ' ';
+            boolean expectedEnd = e == -1 || e <= ' ';
+            if (actualEnd || expectedEnd) return actualEnd && expectedEnd;
+            if (a != e) return false;
+            actual.read();
+            expected.read();
+        }
+    }
+
+    private boolean sameNumberOrToken(CharScanner actual, CharScanner expected,
+                                      char[] actualToken, char[] expectedToken) throws IOException {
+        int na = fillToken(actual, actualToken);
+        int ne = fillToken(expected, expectedToken);
+
+        boolean actualDone = na < NUMBER_CHARS || ended(actual);
+        boolean expectedDone = ne < NUMBER_CHARS || ended(expected);
+        if (actualDone && expectedDone) {
+            double a = parseNumber(actualToken, na);
+            double e = parseNumber(expectedToken, ne);
+            if (!Double.isNaN(a) && !Double.isNaN(e)) {
+                double diff = Math.abs(a - e);
+                return diff <= epsilon || diff <= epsilon * Math.abs(e);
+            }
+        }
+
+        // Not both numbers: the buffered prefixes must agree, then the rest is compared as it is read
+        if (na != ne) return false;
+        for (int i = 0; i < na; i++) {
+            if (actualToken[i] != expectedToken[i]) return false;
+        }
+        return sameToken(actual, expected);
+    }
+
+    private static int fillToken(CharScanner in, char[] buf) throws IOException {
+        int n = 0;
+        while (n < buf.length) {
+            int c = in.peek();
+            if (c == -1 || c <= ' ') break;
+            buf[n++] = (char) in.read();
+        }
+        return n;
+    }
+
+    private static boolean ended(CharScanner in) throws IOException {
+        int c = in.peek();
+        return c == -1 || c <= ' ';
+    }
+
+    /**
+     * Parse [sign] digits [. digits] [e [sign] digits] without building a String
+     *
+     * @return the value, or NaN if the token is not such a number
+     */
+    static double parseNumber(char[] s, int len) {
+        int i = 0;
+        boolean negative = false;
+        if (i < len && (s[i] == '+' || s[i] == '-')) {
+            negative = s[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int exponent = 0;
+        int digits = 0;
+        int significant = 0;
+        boolean fraction = false;
+        for (; i < len; i++) {
+            char c = s[i];
+            if (c == '.' && !fraction) {
+                fraction = true;
+                continue;
+            }
+            if (c < '0' || c > '9') break;
+            digits++;
+            if (significant < 18) {
+                mantissa = mantissa * 10 + (c - '0');
+                if (mantissa != 0) significant++;
+                if (fraction) exponent--;
+            } else if (!fraction) {
+                exponent++; // digits past long precision only scale the value
+            }
+        }
+        if (digits == 0) return Double.NaN;
+
+        if (i < len && (s[i] == 'e' || s[i] == 'E')) {
+            i++;
+            boolean negativeExp = false;
+            if (i < len && (s[i] == '+' || s[i] == '-')) {
+                negativeExp = s[i] == '-';
+                i++;
+            }
+            int exp = 0;
+            int expDigits = 0;
+            for (; i < len && s[i] >= '0' && s[i] <= '9'; i++) {
+                exp = Math.min(exp * 10 + (s[i] - '0'), 100_000);
+                expDigits++;
+            }
+            if (expDigits == 0) return Double.NaN;
+            exponent += negativeExp ? -exp : exp;
+        }
+        if (i != len) return Double.NaN;
+
+        double value = mantissa == 0 ? 0.0 : mantissa * Math.pow(10, exponent);
+        return negative ? -value : value;
+    }
+}
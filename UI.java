@@ -1,3 +1,6 @@
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Application;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -7,10 +10,12 @@ import javafx.scene.layout.*;
 import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
 import java.io.File;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class UI extends Application {
 
@@ -28,6 +33,11 @@ public class UI extends Application {
     private Label file1Label;
     private Label file2Label;
 
+    // Progress from grading threads, flushed to the log area a few times per second
+    private final ConcurrentLinkedQueue<String> pendingLog = new ConcurrentLinkedQueue<>();
+    private static final int MAX_LOG_CHARS = 2_000_000;
+    private static final int HISTORY_RUNS = 10;
+
     @Override
     public void start(Stage primaryStage) {
         primaryStage.setTitle("Assignment Checker - Version 2");
@@ -66,8 +76,35 @@ public class UI extends Application {
         primaryStage.show();
 
         // Init
-        coordinator.createEmptyTestSuite("DefaultSuite");
+        // Suites persist between launches; only a fresh install starts with an empty default suite
+        if (coordinator.getListOfTestSuites().isEmpty()) {
+            coordinator.createEmptyTestSuite("DefaultSuite");
+        }
         refreshSuiteList();
+
+        coordinator.addListener(event -> {
+            if (event.getText() != null) pendingLog.add(event.getText());
+        });
+        Timeline logFlusher = new Timeline(new KeyFrame(Duration.millis(200), e -> flushPendingLog()));
+        logFlusher.setCycleCount(Animation.INDEFINITE);
+        logFlusher.play();
+    }
+
+    /**
+     * Append everything queued since the last tick in one go, trimming the oldest text on huge runs
+     */
+    private void flushPendingLog() {
+        if (pendingLog.isEmpty()) return;
+        StringBuilder batch = new StringBuilder();
+        String line;
+        while ((line = pendingLog.poll()) != null) {
+            batch.append(line);
+        }
+        logArea.appendText(batch.toString());
+        int excess = logArea.getLength() - MAX_LOG_CHARS;
+        if (excess > 0) {
+            logArea.deleteText(0, excess);
+        }
     }
 
     // --- Section Creation Helpers ---
@@ -78,6 +115,9 @@ public class UI extends Application {
         
         Button addCaseBtn = new Button("Add Test Case");
         addCaseBtn.setOnAction(e -> onAddTestCase());
+
+        Button addFileCaseBtn = new Button("Add Test From Files");
+        addFileCaseBtn.setOnAction(e -> onAddFileTestCase(stage));
         
         // --- RESTORED BUTTONS ---
         Button manageBtn = new Button("Manage Test Cases");
@@ -88,7 +128,7 @@ public class UI extends Application {
         deleteSuiteBtn.setOnAction(e -> onDeleteTestSuite());
         // ------------------------
 
-        HBox box = new HBox(10, createBtn, addCaseBtn, manageBtn, deleteSuiteBtn);
+        HBox box = new HBox(10, createBtn, addCaseBtn, addFileCaseBtn, manageBtn, deleteSuiteBtn);
         box.setPadding(new Insets(10));
         return new TitledPane("Test Suite Management", box);
     }
@@ -157,8 +197,18 @@ public class UI extends Application {
 
         HBox r1 = new HBox(10, btn1, file1Label);
         HBox r2 = new HBox(10, btn2, file2Label);
+
+        // History of the suite selected above
+        Label historyDesc = new Label("Or use the run history of the selected suite:");
+        Button lastRunsBtn = new Button("Compare Last " + HISTORY_RUNS + " Runs");
+        lastRunsBtn.setOnAction(e -> onCompareLastRuns());
+        TextField studentField = new TextField();
+        studentField.setPromptText("Student (program) name");
+        Button trendBtn = new Button("Show Trend");
+        trendBtn.setOnAction(e -> onShowTrend(studentField.getText()));
+        HBox r3 = new HBox(10, lastRunsBtn, studentField, trendBtn);
         
-        box.getChildren().addAll(desc, r1, r2, new Separator(), compareBtn);
+        box.getChildren().addAll(desc, r1, r2, new Separator(), compareBtn, new Separator(), historyDesc, r3);
         return new TitledPane("Result Comparison (Version 2)", box);
     }
 
@@ -222,6 +272,33 @@ public class UI extends Application {
         });
     }
 
+    /**
+     * Test case backed by an input file and an expected-output file (e.g. input.txt / answer.txt)
+     */
+    private void onAddFileTestCase(Stage stage) {
+        if (suiteComboBox.getValue() == null) {
+            showAlert("Create or select a test suite first.");
+            return;
+        }
+
+        FileChooser fc = new FileChooser();
+        fc.setTitle("Select Input File");
+        File inputFile = fc.showOpenDialog(stage);
+        if (inputFile == null) return;
+        fc.setTitle("Select Expected Output File");
+        fc.setInitialDirectory(inputFile.getParentFile());
+        File expectedFile = fc.showOpenDialog(stage);
+        if (expectedFile == null) return;
+
+        try {
+            coordinator.addFileTestCaseToSuite(suiteComboBox.getValue(), inputFile.toPath(), expectedFile.toPath());
+            logArea.appendText("Added file test case (" + inputFile.getName() + " => " + expectedFile.getName()
+                    + ") to " + suiteComboBox.getValue() + "\n");
+        } catch (IllegalArgumentException ex) {
+            showAlert(ex.getMessage());
+        }
+    }
+
     // --- RESTORED: Manage Test Cases (View/Edit/Delete) ---
     private void onManageTestCases(Stage stage) {
         String selectedSuite = suiteComboBox.getValue();
@@ -260,6 +337,10 @@ public class UI extends Application {
             int idx = listView.getSelectionModel().getSelectedIndex();
             if (idx >= 0) {
                 TestCase tc = suite.getTestCases().get(idx);
+                if (tc.isFileBacked()) {
+                    showAlert("This test case reads its data from files; edit the files instead.");
+                    return;
+                }
                 // Show Edit Dialog
                 Dialog<TestCaseEdit> editDialog = new Dialog<>();
                 editDialog.setTitle("Edit Test Case");
@@ -278,7 +359,8 @@ public class UI extends Application {
                 editDialog.setResultConverter(b -> b == ButtonType.OK ? new TestCaseEdit(input.getText(), expect.getText()) : null);
                 
                 editDialog.showAndWait().ifPresent(edited -> {
-                    suite.getTestCases().asList().set(idx, new TestCase(edited.input, edited.expectedOutput));
+                    suite.getTestCases().set(idx, new TestCase(edited.input, edited.expectedOutput));
+                    coordinator.saveSuite(selectedSuite);
                     updateListView(listView, suite);
                     logArea.appendText("Edited test case " + (idx+1) + " in " + selectedSuite + "\n");
                 });
@@ -289,7 +371,8 @@ public class UI extends Application {
         deleteBtn.setOnAction(e -> {
             int idx = listView.getSelectionModel().getSelectedIndex();
             if (idx >= 0) {
-                suite.getTestCases().asList().remove(idx);
+                suite.getTestCases().remove(idx);
+                coordinator.saveSuite(selectedSuite);
                 updateListView(listView, suite);
                 logArea.appendText("Deleted test case " + (idx+1) + " from " + selectedSuite + "\n");
             }
@@ -297,7 +380,8 @@ public class UI extends Application {
         
         // Delete All
         deleteAllBtn.setOnAction(e -> {
-            suite.getTestCases().asList().clear();
+            suite.getTestCases().clear();
+            coordinator.saveSuite(selectedSuite);
             updateListView(listView, suite);
             logArea.appendText("Deleted all test cases from " + selectedSuite + "\n");
         });
@@ -307,8 +391,9 @@ public class UI extends Application {
 
     private void updateListView(ListView<String> lv, TestSuit suite) {
         lv.getItems().clear();
-        for (int i = 0; i < suite.getTestCases().size(); i++) {
-            TestCase tc = suite.getTestCases().get(i);
+        List<TestCase> cases = suite.getTestCases().asList();
+        for (int i = 0; i < cases.size(); i++) {
+            TestCase tc = cases.get(i);
             String display = (i + 1) + ". Input: " + tc.getInput().replace("\n", " ") 
                            + " => Expected: " + tc.getExpectedOutput().replace("\n", " ");
             lv.getItems().add(display);
@@ -326,7 +411,7 @@ public class UI extends Application {
         Alert confirm = new Alert(Alert.AlertType.CONFIRMATION, "Delete suite '" + selected + "'?", ButtonType.YES, ButtonType.NO);
         confirm.showAndWait().ifPresent(resp -> {
             if (resp == ButtonType.YES) {
-                coordinator.getListOfTestSuites().deleteSuite(selected);
+                coordinator.deleteTestSuite(selected);
                 refreshSuiteList();
                 logArea.appendText("Deleted suite: " + selected + "\n");
             }
@@ -351,10 +436,10 @@ public class UI extends Application {
             return;
         }
         logArea.setText("Executing...\n");
-        new Thread(() -> {
-            String res = coordinator.executeWithTestSuite(rootFolder, suiteComboBox.getValue());
-            javafx.application.Platform.runLater(() -> logArea.setText(res));
-        }).start();
+        String suiteName = suiteComboBox.getValue();
+        Thread worker = new Thread(() -> coordinator.runSuite(rootFolder, suiteName));
+        worker.setDaemon(true);
+        worker.start();
     }
     
     private File chooseResultFile(Stage stage) {
@@ -362,7 +447,7 @@ public class UI extends Application {
         fc.setTitle("Select Result File");
         fc.setInitialDirectory(new File("test_results"));
         if (!fc.getInitialDirectory().exists()) fc.setInitialDirectory(new File("."));
-        fc.getExtensionFilters().add(new FileChooser.ExtensionFilter("Text Files", "*.txt"));
+        fc.getExtensionFilters().add(new FileChooser.ExtensionFilter("Result Files", "*.jsonl", "*.txt"));
         return fc.showOpenDialog(stage);
     }
 
@@ -382,6 +467,24 @@ public class UI extends Application {
         logArea.setText(res);
     }
 
+    private void onCompareLastRuns() {
+        String suiteName = suiteComboBox.getValue();
+        if (suiteName == null) {
+            showAlert("Please select a test suite first.");
+            return;
+        }
+        logArea.setText(coordinator.compareLastRuns(suiteName, HISTORY_RUNS));
+    }
+
+    private void onShowTrend(String student) {
+        String suiteName = suiteComboBox.getValue();
+        if (suiteName == null || student == null || student.isBlank()) {
+            showAlert("Please select a test suite and enter a student name.");
+            return;
+        }
+        logArea.setText(coordinator.passRateTrend(suiteName, student.trim()));
+    }
+
     private void showAlert(String msg) {
         new Alert(Alert.AlertType.INFORMATION, msg).showAndWait();
     }
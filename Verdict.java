@@ -0,0 +1,42 @@
+/**
+ * Outcome of running one program against one test case.
+ */
+public enum Verdict {
+    PASS('P', "✓ PASS"),
+    FAIL('F', "✗ FAIL"),
+    TIMEOUT('T', "⏱ TIMEOUT"),
+    ERROR('E', "✗ ERROR"),
+    // Broke one of the suite's resource limits
+    MEMORY_LIMIT('M', "▣ MEMORY LIMIT"),
+    STACK_LIMIT('S', "▣ STACK LIMIT"),
+    OUTPUT_LIMIT('O', "✂ OUTPUT LIMIT"),
+    PROCESS_LIMIT('K', "⑂ PROCESS LIMIT"),
+    // Not run: an earlier test of the program failed and the run stops after the first failure
+    SKIPPED('N', "⏭ SKIPPED");
+
+    private final char code;
+    private final String label;
+
+    Verdict(char code, String label) {
+        this.code = code;
+        this.label = label;
+    }
+
+    /**
+     * Single-letter code used in compact verdict strings
+     */
+    public char getCode() {
+        return code;
+    }
+
+    /**
+     * Whether this verdict means the run was stopped for breaking a resource limit
+     */
+    public boolean isLimitExceeded() {
+        return this == MEMORY_LIMIT || this == STACK_LIMIT || this == OUTPUT_LIMIT || this == PROCESS_LIMIT;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
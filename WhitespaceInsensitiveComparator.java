@@ -0,0 +1,31 @@
+import java.io.IOException;
+
+/**
+ * Ignores every whitespace char (anything &lt;= ' ') on both sides and compares what is left.
+ */
+public class WhitespaceInsensitiveComparator implements OutputComparator {
+
+    @Override
+    public String getName() {
+        return "whitespace";
+    }
+
+    @Override
+    public long divergence(CharScanner actual, CharScanner expected, long marginChars) throws IOException {
+        while (true) {
+            int e = expected.read();
+            while (CharScanner.isSpace(e)) e = expected.read();
+
+            long run = 0;
+            while (CharScanner.isSpace(actual.peek())) {
+                actual.read();
+                if (++run > marginChars) return actual.position();
+            }
+
+            long at = actual.position();
+            int a = actual.read();
+            if (a != e) return at;
+            if (a == -1) return MATCH;
+        }
+    }
+}
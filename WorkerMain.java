@@ -0,0 +1,42 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+
+/**
+ * Entry point of a long-lived worker JVM started by {@link WorkerPool}.
+ *
+ * Reads one request at a time from its real stdin and answers on its real stdout:
+ *   request:  UTF classPathDir, UTF mainClass, int maxOutputBytes, int stdinLength, bytes stdin
+ *   response: an {@link IsolatedRunner.Outcome} frame
+ * The worker exits when the grader closes the pipe.
+ */
+public class WorkerMain {
+
+    public static void main(String[] args) throws Exception {
+        // Grab the real descriptors before any submission gets its hands on System.in/out
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(FileDescriptor.in)));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        IsolatedRunner.installExitTrap();
+
+        while (true) {
+            String classPathDir;
+            try {
+                classPathDir = in.readUTF();
+            } catch (EOFException e) {
+                return;
+            }
+            String mainClass = in.readUTF();
+            int maxOutputBytes = in.readInt();
+            byte[] stdin = new byte[in.readInt()];
+            in.readFully(stdin);
+
+            // The grader enforces the timeout by killing this JVM, so wait as long as it takes
+            IsolatedRunner.run(classPathDir, mainClass, stdin, maxOutputBytes, 0).writeTo(out);
+        }
+    }
+}
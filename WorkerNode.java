@@ -0,0 +1,311 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.InputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.Comparator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Entry point of a grading node that a {@link GradingCluster} ships work to:
+ *
+ *   java -cp grader.jar WorkerNode --port 7070 [--bind ADDR] [--token SECRET] [--slots N] [--work-dir DIR]
+ *                                  [--mode PROCESS|BATCH]
+ *
+ * A node compiles and runs whatever Java it is sent, so it only listens on the loopback interface
+ * unless --bind says otherwise, and only takes jobs from coordinators that open with its shared
+ * token (--token, or the {@value #TOKEN_ENV} environment variable). A token is required.
+ *
+ * Each job is unpacked into its own directory under the work dir, compiled, run test by test with the
+ * node's execution mode, and answered with the raw runs. Up to slots jobs run at once across all
+ * connections. Several nodes can share one host by listening on different ports.
+ */
+public class WorkerNode {
+    /** Environment variable with the shared token, for nodes and {@link GraderCli} alike */
+    public static final String TOKEN_ENV = "GRADER_NODE_TOKEN";
+
+    private static final int HELLO_TIMEOUT_MILLIS = 10_000;
+
+    private final int slots;
+    private final Path workDir;
+    private final ExecutionMode executionMode;
+    private final byte[] token;
+    private final ExecutorService jobs;
+
+    public WorkerNode(int slots, Path workDir, ExecutionMode executionMode, String token) {
+        if (slots < 1) {
+            throw new IllegalArgumentException("A node needs at least one slot: " + slots);
+        }
+        if (executionMode == ExecutionMode.WORKER_POOL) {
+            throw new IllegalArgumentException("Worker nodes run PROCESS or BATCH");
+        }
+        if (token == null || token.isEmpty()) {
+            throw new IllegalArgumentException("A node needs a shared token");
+        }
+        this.slots = slots;
+        this.workDir = workDir.toAbsolutePath().normalize();
+        this.executionMode = executionMode;
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+        this.jobs = Executors.newFixedThreadPool(slots);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = -1;
+        InetAddress bind = InetAddress.getLoopbackAddress();
+        String token = System.getenv(TOKEN_ENV);
+        int slots = Runtime.getRuntime().availableProcessors();
+        Path workDir = null;
+        ExecutionMode mode = ExecutionMode.PROCESS;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--port": port = Integer.parseInt(args[++i]); break;
+                    case "--bind": bind = InetAddress.getByName(args[++i]); break;
+                    case "--token": token = args[++i]; break;
+                    case "--slots": slots = Integer.parseInt(args[++i]); break;
+                    case "--work-dir": workDir = Paths.get(args[++i]); break;
+                    case "--mode": mode = ExecutionMode.valueOf(args[++i].toUpperCase()); break;
+                    default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+            if (port < 0) throw new IllegalArgumentException("--port is required");
+            if (token == null || token.isEmpty()) {
+                throw new IllegalArgumentException("--token or " + TOKEN_ENV + " is required");
+            }
+        } catch (RuntimeException | java.net.UnknownHostException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.err.println("Usage: java WorkerNode --port <port> [--bind <addr>] [--token <secret>] [--slots <n>]"
+                    + " [--work-dir <dir>] [--mode PROCESS|BATCH]");
+            System.exit(2);
+        }
+        if (workDir == null) {
+            workDir = Files.createTempDirectory("grader-node");
+        }
+        Files.createDirectories(workDir);
+        if (mode == ExecutionMode.BATCH && IsolatedRunner.exitTrapProblem() != null) {
+            System.err.println("Warning: BATCH mode is not available (" + IsolatedRunner.exitTrapProblem()
+                    + "); running in PROCESS mode instead.");
+            mode = ExecutionMode.PROCESS;
+        }
+
+        new WorkerNode(slots, workDir, mode, token).serve(bind, port);
+    }
+
+    /**
+     * Accept coordinators on the given address forever, each on its own thread
+     */
+    public void serve(InetAddress bind, int port) throws IOException {
+        try (ServerSocket server = new ServerSocket(port, 50, bind)) {
+            System.out.println("Worker node listening on " + bind.getHostAddress() + ":" + server.getLocalPort()
+                    + " with " + slots + " slot(s), work dir " + workDir);
+            while (true) {
+                Socket socket = server.accept();
+                Thread t = new Thread(() -> handle(socket), "node-conn-" + socket.getRemoteSocketAddress());
+                t.setDaemon(true);
+                t.start();
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (Socket s = socket) {
+            s.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+            if (!accept(s, in, out)) {
+                System.err.println("Warning: Rejected " + socket.getRemoteSocketAddress() + ": bad hello or token");
+                return;
+            }
+            Thread heartbeat = new Thread(() -> beat(out), "node-heartbeat");
+            heartbeat.setDaemon(true);
+            heartbeat.start();
+
+            try {
+                while (true) {
+                    byte type;
+                    try {
+                        type = in.readByte();
+                    } catch (EOFException e) {
+                        return; // the coordinator is done
+                    }
+                    if (type != GradingCluster.JOB) {
+                        throw new IOException("unexpected frame type " + type);
+                    }
+                    long id = in.readLong();
+                    FrameInputStream frame = new FrameInputStream(in, in.readLong());
+                    Path dir = null;
+                    RemoteJob job;
+                    try {
+                        dir = Files.createTempDirectory(workDir, "job");
+                        job = RemoteJob.readFrom(new DataInputStream(frame), dir);
+                    } catch (IOException | RuntimeException e) {
+                        if (dir != null) deleteRecursively(dir);
+                        frame.skipRest(); // throws if it was the connection that broke
+                        reply(out, id, RemoteJob.Result.failed("Could not unpack the job: " + e.getMessage()));
+                        continue;
+                    }
+                    frame.skipRest();
+                    Path jobDir = dir;
+                    jobs.execute(() -> {
+                        try {
+                            RemoteJob.Result result;
+                            try {
+                                result = grade(job);
+                            } catch (RuntimeException e) {
+                                // Answer anyway, or the coordinator would wait for this job forever
+                                System.err.println("Warning: Grading " + job.program.getName() + " failed: " + e);
+                                result = RemoteJob.Result.failed(e.toString());
+                            }
+                            reply(out, id, result);
+                        } catch (IOException e) {
+                            // The coordinator went away; it re-queues the job elsewhere
+                        } finally {
+                            deleteRecursively(jobDir);
+                        }
+                    });
+                }
+            } finally {
+                heartbeat.interrupt();
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Connection " + socket.getRemoteSocketAddress() + " dropped: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Check the coordinator's hello and answer with the slot count, or with 0 slots if its token
+     * is wrong. Only a coordinator with the right token gets to send jobs.
+     */
+    private boolean accept(Socket s, DataInputStream in, DataOutputStream out) throws IOException {
+        s.setSoTimeout(HELLO_TIMEOUT_MILLIS);
+        boolean ok = in.readInt() == GradingCluster.MAGIC
+                && MessageDigest.isEqual(token, in.readUTF().getBytes(StandardCharsets.UTF_8));
+        s.setSoTimeout(0);
+        out.writeInt(GradingCluster.MAGIC);
+        out.writeInt(ok ? slots : 0);
+        out.flush();
+        return ok;
+    }
+
+    private static void reply(DataOutputStream out, long id, RemoteJob.Result result) throws IOException {
+        synchronized (out) {
+            out.writeByte(GradingCluster.RESULT);
+            out.writeLong(id);
+            result.writeTo(out);
+            out.flush();
+        }
+    }
+
+    private static void beat(DataOutputStream out) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Thread.sleep(GradingCluster.HEARTBEAT_MILLIS);
+                synchronized (out) {
+                    out.writeByte(GradingCluster.HEARTBEAT);
+                    out.flush();
+                }
+            }
+        } catch (InterruptedException | IOException e) {
+            // Connection closed
+        }
+    }
+
+    /**
+     * Compile the shipped program and run its tests. A fresh coordinator per job keeps the job's own
+     * early-exit settings; it has no caches, the shipping coordinator keeps those.
+     */
+    RemoteJob.Result grade(RemoteJob job) {
+        Coordinator coordinator = new Coordinator(null);
+        coordinator.setCompileCache(null);
+        coordinator.setResultCache(null);
+        coordinator.setExecutionMode(executionMode);
+        coordinator.setEarlyExitOnDivergence(job.earlyExitOnDivergence);
+        coordinator.setDivergenceMarginChars(job.divergenceMarginChars);
+
+        StringBuilder log = new StringBuilder();
+        long start = System.nanoTime();
+        boolean compiled = coordinator.compileProgram(job.program, null, log);
+        long compileMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        RunResult[] runs = compiled ? coordinator.runTests(job.program, job.tests, job.suite, job.stopAfterFirstFailure) : new RunResult[0];
+        // Compiler messages name the job directory; the coordinator shows them for its own copy
+        String compileLog = log.toString().replace(job.program.getProjectDirectory().getAbsolutePath() + java.io.File.separator, "");
+        return new RemoteJob.Result(compiled, compileMillis, compileLog, runs);
+    }
+
+    /**
+     * The bytes of one job frame: reads end at the frame's end, and whatever a failed read left
+     * can be skipped to get to the next frame
+     */
+    private static class FrameInputStream extends FilterInputStream {
+        private long remaining;
+
+        FrameInputStream(InputStream in, long length) throws IOException {
+            super(in);
+            if (length < 0) throw new IOException("Negative frame length " + length);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) return -1;
+            int b = super.read();
+            if (b < 0) throw new EOFException("Connection ended inside a job frame");
+            remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) return -1;
+            int n = super.read(b, off, (int) Math.min(len, remaining));
+            if (n < 0) throw new EOFException("Connection ended inside a job frame");
+            remaining -= n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+
+        @Override
+        public void close() {
+            // The connection stays open for the next frame
+        }
+
+        void skipRest() throws IOException {
+            while (remaining > 0) {
+                if (skip(remaining) == 0 && read() < 0) break;
+            }
+        }
+    }
+
+    private static void deleteRecursively(Path dir) {
+        try (Stream<Path> walk = Files.walk(dir)) {
+            walk.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        } catch (IOException e) {
+            System.err.println("Warning: Could not clean up " + dir + ": " + e.getMessage());
+        }
+    }
+}
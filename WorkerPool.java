@@ -0,0 +1,166 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A bounded pool of long-lived worker JVMs (see {@link WorkerMain}). Running a test
+ * in a warm worker skips JVM startup entirely; a worker that times out, crashes or
+ * leaves threads behind is killed and replaced on the next request.
+ */
+public class WorkerPool implements AutoCloseable {
+    // Recycle workers now and then so class loader garbage cannot pile up forever
+    private static final int MAX_INVOCATIONS_PER_WORKER = 500;
+
+    private final Semaphore permits;
+    private final ConcurrentLinkedQueue<Worker> idle;
+    private final List<Worker> all;
+    private final Executor executor;
+    private volatile boolean closed;
+
+    public WorkerPool(int size, Executor executor) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1: " + size);
+        }
+        this.permits = new Semaphore(size);
+        this.idle = new ConcurrentLinkedQueue<>();
+        this.all = new ArrayList<>();
+        this.executor = executor;
+        this.closed = false;
+    }
+
+    /**
+     * Run the program's main class in a worker with the given stdin
+     */
+    public RunResult run(Program program, String stdin, long timeoutMillis, int maxOutputBytes)
+            throws IOException, InterruptedException {
+        permits.acquire();
+        Worker worker = null;
+        boolean reusable = false;
+        try {
+            worker = idle.poll();
+            if (worker == null) {
+                worker = startWorker();
+            }
+
+            // The worker outlives the run, so only its CPU time during the run can be attributed;
+            // its peak RSS covers every program it ever ran and is not reported
+            long start = System.nanoTime();
+            long cpuBefore = ProcessMeter.cpuMillis(worker.process.toHandle());
+            worker.send(program.getClassPathDir(), program.getMainClassName(),
+                    stdin == null ? new byte[0] : stdin.getBytes(StandardCharsets.UTF_8), maxOutputBytes);
+
+            Worker w = worker;
+            CompletableFuture<IsolatedRunner.Outcome> response = CompletableFuture.supplyAsync(w::receive, executor);
+            IsolatedRunner.Outcome outcome;
+            try {
+                outcome = response.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                return RunResult.timeout("", false).withUsage(worker.usageSince(start, cpuBefore));
+            } catch (ExecutionException e) {
+                throw new IOException("Worker JVM died while running " + program.getName(), e.getCause());
+            }
+
+            reusable = outcome.clean && ++worker.invocations < MAX_INVOCATIONS_PER_WORKER;
+            return outcome.toRunResult().withUsage(worker.usageSince(start, cpuBefore));
+        } finally {
+            if (worker != null) {
+                if (reusable && !closed) {
+                    idle.add(worker);
+                } else {
+                    worker.destroy();
+                }
+            }
+            permits.release();
+        }
+    }
+
+    private Worker startWorker() throws IOException {
+        List<String> cmd = new ArrayList<>();
+        cmd.add("java");
+        cmd.add("-Djava.security.manager=allow"); // needed for the System.exit trap
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        cmd.add("WorkerMain");
+
+        ProcessBuilder pb = new ProcessBuilder(cmd);
+        pb.redirectError(ProcessBuilder.Redirect.DISCARD);
+        Worker worker = new Worker(pb.start());
+        synchronized (all) {
+            all.add(worker);
+        }
+        return worker;
+    }
+
+    /**
+     * Kill every worker; requests still in flight fail with an IOException
+     */
+    @Override
+    public void close() {
+        closed = true;
+        List<Worker> workers;
+        synchronized (all) {
+            workers = new ArrayList<>(all);
+        }
+        for (Worker w : workers) {
+            w.destroy();
+        }
+        idle.clear();
+    }
+
+    private class Worker {
+        final Process process;
+        final DataOutputStream to;
+        final DataInputStream from;
+        int invocations;
+
+        Worker(Process process) {
+            this.process = process;
+            this.to = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            this.from = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+            this.invocations = 0;
+        }
+
+        void send(String classPathDir, String mainClass, byte[] stdin, int maxOutputBytes) throws IOException {
+            to.writeUTF(classPathDir);
+            to.writeUTF(mainClass);
+            to.writeInt(maxOutputBytes);
+            to.writeInt(stdin.length);
+            to.write(stdin);
+            to.flush();
+        }
+
+        IsolatedRunner.Outcome receive() {
+            try {
+                return IsolatedRunner.Outcome.readFrom(from);
+            } catch (IOException e) {
+                throw new java.io.UncheckedIOException(e);
+            }
+        }
+
+        ResourceUsage usageSince(long startNanos, long cpuBefore) {
+            long cpuAfter = ProcessMeter.cpuMillis(process.toHandle());
+            long cpu = cpuBefore >= 0 && cpuAfter >= 0 ? cpuAfter - cpuBefore : -1;
+            return new ResourceUsage(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), cpu, -1);
+        }
+
+        void destroy() {
+            process.descendants().forEach(ProcessHandle::destroyForcibly);
+            process.destroyForcibly();
+            synchronized (all) {
+                all.remove(this);
+            }
+        }
+    }
+}
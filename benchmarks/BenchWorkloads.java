@@ -0,0 +1,137 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Default-package side of the benchmarks: runs the real grader code for bench.Workloads.
+ */
+public class BenchWorkloads implements bench.Workloads {
+    private static final long RUN_TIMEOUT_MILLIS = 10_000;
+
+    private final Coordinator coordinator;
+    private Program program;
+    private WorkerPool workerPool; // WORKER_POOL runs only
+    private TestSuit suite;
+
+    public BenchWorkloads() {
+        this.coordinator = new Coordinator(null); // no suite store
+        coordinator.setCompileCache(null);
+        coordinator.setResultCache(null);
+    }
+
+    @Override
+    public int discover(Path root) {
+        coordinator.buildProgramsFromRoot(root.toFile(), new StringBuilder());
+        return coordinator.getPrograms().size();
+    }
+
+    @Override
+    public boolean compile(Path dir, String mainFile, String compileMode) {
+        coordinator.setCompileMode(CompileMode.valueOf(compileMode));
+        Program p = new Program(dir.getFileName().toString(), dir.toFile(), dir.resolve(mainFile).toFile());
+        return coordinator.compileProgram(p, null, new StringBuilder());
+    }
+
+    @Override
+    public void prepareRun(Path dir, String mainFile, String executionMode) {
+        program = new Program(dir.getFileName().toString(), dir.toFile(), dir.resolve(mainFile).toFile());
+        if (!coordinator.compileProgram(program, null, new StringBuilder())) {
+            throw new IllegalStateException("Could not compile " + program.getJavaFile());
+        }
+        close();
+        if (ExecutionMode.valueOf(executionMode) == ExecutionMode.WORKER_POOL) {
+            workerPool = new WorkerPool(1, java.util.concurrent.ForkJoinPool.commonPool());
+        }
+    }
+
+    @Override
+    public String run(String stdin) {
+        try {
+            RunResult result = workerPool != null
+                    ? workerPool.run(program, stdin, RUN_TIMEOUT_MILLIS, TestSuit.DEFAULT_MAX_OUTPUT_BYTES)
+                    : coordinator.runProgram(program, stdin, RUN_TIMEOUT_MILLIS, TestSuit.DEFAULT_MAX_OUTPUT_BYTES,
+                            ResourceLimits.NONE);
+            return result.getOutput();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (workerPool != null) {
+            workerPool.close();
+            workerPool = null;
+        }
+    }
+
+    @Override
+    public boolean evaluate(String actual, String expected, String comparator) {
+        TestCase tc = new TestCase("", expected);
+        tc.setComparator(OutputComparator.forName(comparator));
+        tc.evaluate(actual);
+        return tc.isPassed();
+    }
+
+    @Override
+    public void prepareResults(int programs, int tests, long seed) {
+        Random random = new Random(seed);
+        ListOfTestCase cases = new ListOfTestCase();
+        for (int t = 0; t < tests; t++) {
+            cases.add(new TestCase(random.nextInt(1000) + " " + random.nextInt(1000), Integer.toString(t)));
+        }
+        suite = new TestSuit("Bench", cases);
+
+        List<String> names = new ArrayList<>();
+        for (int p = 0; p < programs; p++) names.add("student" + p);
+        ResultMatrix results = new ResultMatrix(names, tests, true);
+        Verdict[] verdicts = {Verdict.PASS, Verdict.PASS, Verdict.PASS, Verdict.FAIL, Verdict.TIMEOUT};
+        for (int p = 0; p < programs; p++) {
+            int passed = 0;
+            for (int t = 0; t < tests; t++) {
+                Verdict v = verdicts[random.nextInt(verdicts.length)];
+                if (v == Verdict.PASS) passed++;
+                results.set(p, t, v, false, v == Verdict.PASS ? Integer.toString(t) : "wrong " + t,
+                        new ResourceUsage(random.nextInt(500), random.nextInt(400), 30_000 + random.nextInt(10_000)));
+            }
+            suite.storeProgramResult(names.get(p), true, passed, tests - passed);
+        }
+        results.seal();
+        suite.setLastResults(results);
+        suite.updateStatistics();
+        suite.setLastRunDate(java.time.LocalDateTime.of(2000, 1, 1, 0, 0));
+    }
+
+    @Override
+    public Path saveResults() {
+        if (!suite.saveResults()) {
+            throw new IllegalStateException("Could not save results");
+        }
+        return Paths.get(TestSuit.getResultsDirectory().toString(), "Bench_20000101_000000.jsonl");
+    }
+
+    @Override
+    public String reloadReport(Path resultFile) {
+        try {
+            return ResultLog.read(resultFile).toReport();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public int parsePassRates(Path resultFile) {
+        try {
+            return ResultLog.read(resultFile).getPassRates().size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
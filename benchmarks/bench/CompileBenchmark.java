@@ -0,0 +1,74 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compiling Submissions/sum3.java from scratch (no compile cache) with javac in a child
+ * process versus the in-process compiler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CompileBenchmark {
+    static final Path SUBMISSION = Paths.get("Submissions", "sum3.java");
+
+    @Param({"PROCESS", "IN_PROCESS"})
+    public String compileMode;
+
+    private Workloads workloads;
+    private Path dir;
+
+    @Setup(Level.Trial)
+    public void copySubmission() throws IOException {
+        workloads = Workloads.create();
+        dir = copyToTempDir(SUBMISSION, "compile-bench");
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteCopy() throws IOException {
+        deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public boolean compile() {
+        return workloads.compile(dir, SUBMISSION.getFileName().toString(), compileMode);
+    }
+
+    static Path copyToTempDir(Path file, String prefix) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            throw new IllegalStateException(file + " not found; run the benchmarks from the repository root");
+        }
+        Path dir = Files.createTempDirectory(prefix);
+        Files.copy(file, dir.resolve(file.getFileName()));
+        return dir;
+    }
+
+    static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+}
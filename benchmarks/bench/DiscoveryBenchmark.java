@@ -0,0 +1,75 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Program discovery over a synthetic submissions tree: one folder per student with nested
+ * packages, helper classes and non-Java files, and main() in the last file of the deepest folder.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DiscoveryBenchmark {
+
+    @Param({"50", "500"})
+    public int students;
+
+    @Param({"2", "6"})
+    public int depth;
+
+    private Workloads workloads;
+    private Path root;
+
+    @Setup(Level.Trial)
+    public void createTree() throws IOException {
+        workloads = Workloads.create();
+        root = Files.createTempDirectory("discovery-bench");
+        for (int s = 0; s < students; s++) {
+            Path dir = root.resolve("student" + s);
+            for (int d = 0; d < depth; d++) {
+                dir = dir.resolve("pkg" + d);
+                Files.createDirectories(dir);
+                Files.writeString(dir.resolve("Helper" + d + ".java"),
+                        "class Helper" + d + " {\n    int value() { return " + d + "; }\n}\n");
+                Files.writeString(dir.resolve("notes" + d + ".txt"), "not java\n".repeat(50));
+            }
+            Files.writeString(dir.resolve("Main.java"),
+                    "public class Main {\n    public static void main(String[] args) {\n"
+                            + "        System.out.println(" + s + ");\n    }\n}\n");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteTree() throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public int discover() {
+        return workloads.discover(root);
+    }
+}
@@ -0,0 +1,64 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * TestCase.evaluate on large outputs of numbers, one per line: identical output with CRLF line
+ * ends, and output that only differs in its last line (the worst case for a scanner).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EvaluateBenchmark {
+
+    @Param({"1048576", "16777216"})
+    public int outputChars;
+
+    @Param({"exact", "tokens", "numeric:1e-6"})
+    public String comparator;
+
+    private Workloads workloads;
+    private String expected;
+    private String sameWithCrlf;
+    private String differentAtEnd;
+
+    @Setup
+    public void createOutputs() {
+        workloads = Workloads.create();
+        StringBuilder lf = new StringBuilder(outputChars + 16);
+        StringBuilder crlf = new StringBuilder(outputChars + outputChars / 4);
+        for (int i = 0; lf.length() < outputChars; i++) {
+            String line = Double.toString(i * 0.5);
+            lf.append(line).append('\n');
+            crlf.append(line).append("\r\n");
+        }
+        expected = lf.toString();
+        sameWithCrlf = crlf.toString();
+        differentAtEnd = expected.substring(0, expected.length() - 2) + "9\n";
+    }
+
+    @Benchmark
+    public boolean matching() {
+        return workloads.evaluate(sameWithCrlf, expected, comparator);
+    }
+
+    @Benchmark
+    public boolean differentAtEnd() {
+        return workloads.evaluate(differentAtEnd, expected, comparator);
+    }
+}
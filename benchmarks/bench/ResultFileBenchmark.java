@@ -0,0 +1,60 @@
+package bench;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Saving a finished run (JSONL result file plus text report) and loading it back, for the
+ * reload and compare features. Writes to test_results/ in the working directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResultFileBenchmark {
+
+    @Param({"30", "300"})
+    public int programs;
+
+    @Param({"10", "100"})
+    public int tests;
+
+    private Workloads workloads;
+    private Path resultFile;
+
+    @Setup
+    public void prepareRun() {
+        workloads = Workloads.create();
+        workloads.prepareResults(programs, tests, 42);
+        resultFile = workloads.saveResults();
+    }
+
+    @Benchmark
+    public Path save() {
+        return workloads.saveResults();
+    }
+
+    @Benchmark
+    public String reloadReport() {
+        return workloads.reloadReport(resultFile);
+    }
+
+    @Benchmark
+    public int parsePassRates() {
+        return workloads.parsePassRates(resultFile);
+    }
+}
@@ -0,0 +1,59 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One test run of the compiled Submissions/sum3.java: a fresh JVM per run versus a reused
+ * worker JVM.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RunBenchmark {
+
+    @Param({"PROCESS", "WORKER_POOL"})
+    public String executionMode;
+
+    private Workloads workloads;
+    private Path dir;
+
+    @Setup(Level.Trial)
+    public void compileSubmission() throws IOException {
+        workloads = Workloads.create();
+        dir = CompileBenchmark.copyToTempDir(CompileBenchmark.SUBMISSION, "run-bench");
+        workloads.prepareRun(dir, CompileBenchmark.SUBMISSION.getFileName().toString(), executionMode);
+        if (!"6".equals(workloads.run("1\n2\n3\n").trim())) {
+            throw new IllegalStateException("sum3 did not print 6");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() throws IOException {
+        workloads.close();
+        CompileBenchmark.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public String run() {
+        return workloads.run("1\n2\n3\n");
+    }
+}
@@ -0,0 +1,83 @@
+package bench;
+
+import java.nio.file.Path;
+
+/**
+ * The grader operations the benchmarks time. The grader lives in the default package, which
+ * classes in a named package (as JMH requires for benchmarks) cannot refer to, so the
+ * default-package BenchWorkloads implements this interface and is loaded by name.
+ */
+public interface Workloads {
+
+    static Workloads create() {
+        try {
+            return (Workloads) Class.forName("BenchWorkloads").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("BenchWorkloads is not on the class path", e);
+        }
+    }
+
+    /**
+     * Scan a submissions root the way a suite run does
+     *
+     * @return the number of programs found
+     */
+    int discover(Path root);
+
+    /**
+     * Compile the program in dir from scratch, bypassing the compile cache
+     *
+     * @param compileMode name of a CompileMode
+     * @return whether it compiled
+     */
+    boolean compile(Path dir, String mainFile, String compileMode);
+
+    /**
+     * Select the compiled program that {@link #run} executes
+     *
+     * @param executionMode PROCESS (a fresh JVM per run) or WORKER_POOL
+     */
+    void prepareRun(Path dir, String mainFile, String executionMode);
+
+    /**
+     * Run the prepared program once
+     *
+     * @return its output
+     */
+    String run(String stdin);
+
+    /**
+     * Stop worker JVMs started for {@link #run}
+     */
+    void close();
+
+    /**
+     * Evaluate one test case the way a single-test check does
+     *
+     * @param comparator an output comparator name such as "exact" or "tokens"
+     * @return whether it passed
+     */
+    boolean evaluate(String actual, String expected, String comparator);
+
+    /**
+     * Fill a suite with a finished run of the given size, with random verdicts and short outputs
+     */
+    void prepareResults(int programs, int tests, long seed);
+
+    /**
+     * Save the prepared run: JSONL result file plus the text report rendered from it
+     *
+     * @return the JSONL file
+     */
+    Path saveResults();
+
+    /**
+     * Load a result file and render its report, as reloading results does
+     */
+    String reloadReport(Path resultFile);
+
+    /**
+     * Load a result file and extract per-program pass rates, as comparing two runs does
+     */
+    int parsePassRates(Path resultFile);
+}